@@ -51,6 +51,7 @@ kotlin {
                 implementation(libs.filekit.dialogs)
                 implementation(libs.filekit.coil)
                 implementation(composeLibs.coil.compose)
+                implementation(composeLibs.coil.network.okhttp)
 
                 implementation(projects.data)
                 implementation(projects.resources)
@@ -2,6 +2,7 @@ package com.mrboomdev.awery.app
 
 import coil3.ImageLoader
 import coil3.SingletonImageLoader
+import coil3.annotation.ExperimentalCoilApi
 import coil3.decode.DataSource
 import coil3.decode.ImageSource
 import coil3.disk.DiskCache
@@ -9,6 +10,9 @@ import coil3.disk.directory
 import coil3.fetch.FetchResult
 import coil3.fetch.Fetcher
 import coil3.fetch.SourceFetchResult
+import coil3.memory.MemoryCache
+import coil3.network.DeDupeConcurrentRequestStrategy
+import coil3.network.okhttp.OkHttpNetworkFetcherFactory
 import coil3.request.CachePolicy
 import coil3.request.crossfade
 import coil3.size.Precision
@@ -17,6 +21,8 @@ import com.mrboomdev.awery.core.utils.launchGlobal
 import com.mrboomdev.awery.core.utils.toJavaFile
 import com.mrboomdev.awery.core.utils.useTemporaryFile
 import com.mrboomdev.awery.extension.loaders.Extensions
+import com.mrboomdev.awery.ui.utils.MediaPosterMapper
+import eu.kanade.tachiyomi.network.NetworkHelper
 import io.github.vinceglb.filekit.FileKit
 import io.github.vinceglb.filekit.cacheDir
 import io.github.vinceglb.filekit.coil.addPlatformFileSupport
@@ -27,27 +33,46 @@ import okio.source
 import java.io.ByteArrayInputStream
 import java.io.ByteArrayOutputStream
 
+@OptIn(ExperimentalCoilApi::class)
 fun Awery.initEverything() {
     platformInit()
     useTemporaryFile {}
     
     SingletonImageLoader.setSafe { context ->
         ImageLoader.Builder(context).apply {
-//            networkCachePolicy(CachePolicy.ENABLED)
-//            diskCachePolicy(CachePolicy.ENABLED)
+            networkCachePolicy(CachePolicy.ENABLED)
+            diskCachePolicy(CachePolicy.ENABLED)
+            memoryCachePolicy(CachePolicy.ENABLED)
             crossfade(true)
             
             components {
                 addPlatformFileSupport()
+                add(MediaPosterMapper())
+                
+                // Images are loaded using the same client as extensions do,
+                // so that hosts protected by Cloudflare or requiring cookies do work.
+                add(OkHttpNetworkFetcherFactory(
+                    // Coil has its own disk cache, so don't store every image twice.
+                    callFactory = { NetworkHelper.imageClient },
+                    // Same images are often shown in multiple places at once.
+                    concurrentRequestStrategy = { DeDupeConcurrentRequestStrategy() }
+                ))
             }
 
-//            diskCache {
-//                DiskCache.Builder().apply {
-//                    directory(FileKit.cacheDir.resolve("coil").toJavaFile())
-//                    maxSizeBytes(500 * 1024 * 1024 * 8)
-//                    maxSizePercent(.25)
-//                }.build()
-//            }
+            memoryCache {
+                MemoryCache.Builder()
+                    .maxSizePercent(context, .2)
+                    .build()
+            }
+
+            diskCache {
+                DiskCache.Builder().apply {
+                    directory(FileKit.cacheDir.resolve("coil").toJavaFile())
+                    maxSizePercent(.02)
+                    minimumMaxSizeBytes(64L * 1024 * 1024)
+                    maximumMaxSizeBytes(512L * 1024 * 1024)
+                }.build()
+            }
         }.build()
     }
 
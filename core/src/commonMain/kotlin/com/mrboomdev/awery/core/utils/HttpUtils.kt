@@ -4,10 +4,16 @@ import io.github.vinceglb.filekit.PlatformFile
 import io.ktor.client.statement.*
 import io.ktor.utils.io.core.*
 import io.ktor.utils.io.exhausted
+import io.ktor.utils.io.jvm.javaio.toInputStream
 import io.ktor.utils.io.readRemaining
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.withContext
 import kotlinx.io.RawSink
 import kotlinx.io.asSink
+import kotlinx.serialization.ExperimentalSerializationApi
 import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.decodeFromStream
 import java.io.FileOutputStream
 
 /**
@@ -39,5 +45,23 @@ internal val defaultJsonSpec = Json {
     ignoreUnknownKeys = true
 }
 
-suspend inline fun <reified T> HttpResponse.bodyAsJson() =
-    defaultJsonSpec.decodeFromString<T>(bodyAsText())
\ No newline at end of file
+/**
+ * Decodes the body without making a string out of it first.
+ * Responses returned by [io.ktor.client.HttpClient.get] and similar are already downloaded at this point,
+ * so prefer the [HttpStatement] one to decode the body while it is being downloaded.
+ */
+@OptIn(ExperimentalSerializationApi::class)
+suspend inline fun <reified T> HttpResponse.bodyAsJson(): T {
+    val channel = bodyAsChannel()
+
+    return withContext(Dispatchers.IO) {
+        defaultJsonSpec.decodeFromStream<T>(channel.toInputStream())
+    }
+}
+
+/**
+ * Executes the request and decodes the body while it is being downloaded.
+ */
+suspend inline fun <reified T> HttpStatement.bodyAsJson(): T {
+    return execute { it.bodyAsJson<T>() }
+}
\ No newline at end of file
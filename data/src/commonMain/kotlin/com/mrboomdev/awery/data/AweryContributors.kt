@@ -5,7 +5,7 @@ import com.mrboomdev.awery.core.http
 import com.mrboomdev.awery.core.utils.Log
 import com.mrboomdev.awery.core.utils.bodyAsJson
 import io.ktor.client.call.body
-import io.ktor.client.request.get
+import io.ktor.client.request.prepareGet
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.IO
@@ -81,7 +81,7 @@ object AweryContributors {
     /**
      * Fetches remote contributors from an GitHub repository.
      */
-    private suspend fun getRemote() = Awery.http.get(
+    private suspend fun getRemote() = Awery.http.prepareGet(
         "https://api.github.com/repos/MrBoomDeveloper/Awery/contributors?per_page=100&page=0"
     ).bodyAsJson<List<GitHubContributor>>()
 
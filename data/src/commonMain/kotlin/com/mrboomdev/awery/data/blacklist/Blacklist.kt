@@ -0,0 +1,115 @@
+package com.mrboomdev.awery.data.blacklist
+
+import com.mrboomdev.awery.core.Awery
+import com.mrboomdev.awery.data.database.database
+import com.mrboomdev.awery.data.database.entity.DBBlacklistedKeyword
+import com.mrboomdev.awery.data.database.entity.DBBlacklistedMedia
+import com.mrboomdev.awery.extension.sdk.Media
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlin.concurrent.Volatile
+
+/**
+ * An in-memory mirror of the blacklisted media and keywords tables.
+ * Membership checks are answered without touching the database,
+ * so feeds with hundreds of items can be filtered at no cost.
+ *
+ * All modifications must go through this object instead of the daos,
+ * otherwise the cache won't know about them until the app restarts.
+ */
+object Blacklist {
+	private val mutex = Mutex()
+
+	// Both maps are never mutated after being published, so that they can be read without any locking.
+	@Volatile
+	private var media: Map<String, Set<String>>? = null
+
+	@Volatile
+	private var keywords: Set<String>? = null
+
+	/**
+	 * Loads both tables into the memory if it wasn't done yet.
+	 * Called automatically by every other method, but may be called ahead to warm the cache up.
+	 */
+	suspend fun load() {
+		if(media != null && keywords != null) return
+
+		mutex.withLock {
+			if(media == null) {
+				media = Awery.database.mediaBlacklist.getAll()
+					.groupBy({ it.extensionId }, { it.mediaId })
+					.mapValues { (_, ids) -> ids.toHashSet() }
+			}
+
+			if(keywords == null) {
+				keywords = Awery.database.keywordBlacklist.getAll()
+					.mapTo(hashSetOf()) { it.name.lowercase() }
+			}
+		}
+	}
+
+	suspend fun isBlacklisted(extensionId: String, mediaId: String): Boolean {
+		load()
+		return media!![extensionId]?.contains(mediaId) == true
+	}
+
+	/**
+	 * @return True if either the media itself or any of its tags were blacklisted.
+	 */
+	suspend fun isBlacklisted(extensionId: String, media: Media): Boolean {
+		if(isBlacklisted(extensionId, media.id)) return true
+		val keywords = keywords!!.takeIf { it.isNotEmpty() } ?: return false
+		return media.tags?.any { it.lowercase() in keywords } == true
+	}
+
+	/**
+	 * Removes all blacklisted media from the list.
+	 * The database is being queried at most once.
+	 */
+	suspend fun filter(extensionId: String, media: List<Media>): List<Media> {
+		load()
+		return media.filterNot { isBlacklisted(extensionId, it) }
+	}
+
+	suspend fun add(media: DBBlacklistedMedia) {
+		load()
+
+		mutex.withLock {
+			Awery.database.mediaBlacklist.add(media)
+
+			this.media = this.media!!.toMutableMap().apply {
+				this[media.extensionId] = (this[media.extensionId] ?: emptySet()) + media.mediaId
+			}
+		}
+	}
+
+	suspend fun remove(media: DBBlacklistedMedia) {
+		load()
+
+		mutex.withLock {
+			Awery.database.mediaBlacklist.delete(media)
+
+			this.media = this.media!!.toMutableMap().apply {
+				this[media.extensionId] = (this[media.extensionId] ?: return@withLock) - media.mediaId
+			}
+		}
+	}
+
+	suspend fun add(keyword: DBBlacklistedKeyword) {
+		load()
+
+		mutex.withLock {
+			Awery.database.keywordBlacklist.add(keyword)
+			keywords = keywords!! + keyword.name.lowercase()
+		}
+	}
+
+	suspend fun remove(keyword: DBBlacklistedKeyword) {
+		load()
+
+		mutex.withLock {
+			Awery.database.keywordBlacklist.delete(keyword)
+			keywords = keywords!! - keyword.name.lowercase()
+		}
+	}
+}
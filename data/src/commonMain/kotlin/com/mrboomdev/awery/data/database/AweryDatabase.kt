@@ -12,7 +12,7 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.IO
 
 @Database(
-    version = 2,
+    version = 5,
     
     entities = [
         DBMedia::class,
@@ -1,8 +1,60 @@
 package com.mrboomdev.awery.data.database
 
 import androidx.room.migration.Migration
+import androidx.sqlite.SQLiteConnection
+import androidx.sqlite.execSQL
 
 internal val migrations: Array<Migration>
     get() = arrayOf(
         /** Add manual migrations here **/
-    )
\ No newline at end of file
+        Migration2To3,
+        Migration3To4,
+        Migration4To5
+    )
+
+/**
+ * Moves fields required by the library grid out of the json blob into real columns.
+ */
+private object Migration2To3: Migration(2, 3) {
+    override fun migrate(connection: SQLiteConnection) {
+        connection.execSQL("ALTER TABLE DBMedia ADD COLUMN title TEXT NOT NULL DEFAULT ''")
+        connection.execSQL("ALTER TABLE DBMedia ADD COLUMN poster TEXT")
+        connection.execSQL("ALTER TABLE DBMedia ADD COLUMN type TEXT NOT NULL DEFAULT 'WATCHABLE'")
+        connection.execSQL("ALTER TABLE DBMedia ADD COLUMN episodes INTEGER")
+        connection.execSQL("ALTER TABLE DBMedia ADD COLUMN releaseDate INTEGER")
+        connection.execSQL("ALTER TABLE DBMedia ADD COLUMN ageRating TEXT")
+
+        // Default values are omitted by kotlinx.serialization, so we have to fallback to them.
+        connection.execSQL("""
+            UPDATE DBMedia SET
+                title = COALESCE(json_extract(json, '$.title'), ''),
+                poster = COALESCE(json_extract(json, '$.poster'), json_extract(json, '$.largePoster'), json_extract(json, '$.banner')),
+                type = COALESCE(json_extract(json, '$.type'), 'WATCHABLE'),
+                episodes = json_extract(json, '$.episodes'),
+                releaseDate = json_extract(json, '$.releaseDate'),
+                ageRating = json_extract(json, '$.ageRating')
+        """)
+    }
+}
+
+/**
+ * Lists are being paginated by their id, so it has to be indexed.
+ */
+private object Migration3To4: Migration(3, 4) {
+    override fun migrate(connection: SQLiteConnection) {
+        connection.execSQL("CREATE INDEX IF NOT EXISTS `index_DBListMediaCrossRef_listId` ON `DBListMediaCrossRef` (`listId`)")
+    }
+}
+
+/**
+ * Adds an indexed time of the last update to the watch progress, so that it can be sorted.
+ */
+private object Migration4To5: Migration(4, 5) {
+    override fun migrate(connection: SQLiteConnection) {
+        connection.execSQL("ALTER TABLE DBWatchProgress ADD COLUMN lastUpdated INTEGER NOT NULL DEFAULT 0")
+        
+        // Rows are replaced on every update, so rowid does already represent the order of updates.
+        connection.execSQL("UPDATE DBWatchProgress SET lastUpdated = rowid")
+        connection.execSQL("CREATE INDEX IF NOT EXISTS `index_DBWatchProgress_lastUpdated` ON `DBWatchProgress` (`lastUpdated`)")
+    }
+}
@@ -2,7 +2,9 @@ package com.mrboomdev.awery.data.database.dao
 
 import androidx.room.*
 import com.mrboomdev.awery.data.database.entity.DBList
+import com.mrboomdev.awery.data.database.entity.DBListWithMedia
 import com.mrboomdev.awery.data.database.entity.DBMedia
+import com.mrboomdev.awery.data.database.entity.DBMediaPreview
 import kotlinx.coroutines.flow.Flow
 
 @Dao
@@ -15,6 +17,45 @@ interface ListDao {
     """)
     fun observeMediaInList(listId: Long): Flow<List<DBMedia>>
 
+    /**
+     * Observes all lists together with first [limit] media of each one in a single query,
+     * so that the whole library is being re-queried only once on any change instead of once per every list.
+     * Rows are ordered by the list and then by the latest added media.
+     * Use [getMediaPage] to load the rest of media.
+     */
+    @Query("""
+        SELECT DBList.*,
+            media.rowid AS media_rowid, media.extensionId AS media_extensionId, media.id AS media_id,
+            media.title AS media_title, media.poster AS media_poster, media.type AS media_type,
+            media.episodes AS media_episodes, media.releaseDate AS media_releaseDate, media.ageRating AS media_ageRating
+        FROM DBList
+        LEFT JOIN (
+            SELECT DBListMediaCrossRef.listId AS listId, DBMedia.rowid AS rowid, DBMedia.extensionId, DBMedia.id, 
+                DBMedia.title, DBMedia.poster, DBMedia.type, DBMedia.episodes, DBMedia.releaseDate, DBMedia.ageRating,
+                ROW_NUMBER() OVER (PARTITION BY DBListMediaCrossRef.listId ORDER BY DBMedia.rowid DESC) AS position
+            FROM DBListMediaCrossRef
+            INNER JOIN DBMedia ON DBMedia.extensionId = DBListMediaCrossRef.mediaExtensionId AND DBMedia.id = DBListMediaCrossRef.mediaId
+        ) AS media ON media.listId = DBList.id AND media.position <= :limit
+        ORDER BY DBList.id, media.rowid DESC
+    """)
+    fun observeAllWithMedia(limit: Int): Flow<List<DBListWithMedia>>
+
+    /**
+     * Loads a single page of media in the list using keyset pagination,
+     * so that the cost doesn't depend on how far the user did scroll.
+     * @param beforeRowId [DBMediaPreview.rowid] of the last loaded media or [Long.MAX_VALUE] to load the first page.
+     */
+    @Query("""
+        SELECT DBMedia.rowid, DBMedia.extensionId, DBMedia.id, DBMedia.title, DBMedia.poster, 
+            DBMedia.type, DBMedia.episodes, DBMedia.releaseDate, DBMedia.ageRating
+        FROM DBListMediaCrossRef
+        INNER JOIN DBMedia ON DBMedia.extensionId = DBListMediaCrossRef.mediaExtensionId AND DBMedia.id = DBListMediaCrossRef.mediaId
+        WHERE DBListMediaCrossRef.listId = :listId AND DBMedia.rowid < :beforeRowId
+        ORDER BY DBMedia.rowid DESC
+        LIMIT :limit
+    """)
+    suspend fun getMediaPage(listId: Long, beforeRowId: Long, limit: Int): List<DBMediaPreview>
+
     @Query("SELECT * FROM DBList")
     fun observeAll(): Flow<List<DBList>>
     
@@ -5,14 +5,31 @@ import androidx.room.Delete
 import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
+import androidx.room.Transaction
 import com.mrboomdev.awery.data.database.entity.DBWatchProgress
+import com.mrboomdev.awery.data.database.entity.DBWatchProgressWithMedia
 import kotlinx.coroutines.flow.Flow
 import kotlinx.serialization.json.Json
 
 @Dao
 abstract class WatchProgressDao {
-    @Query("SELECT * FROM DBWatchProgress REVERSE WHERE progress != -1 LIMIT :count")
-    abstract fun observeLatest(count: Int): Flow<List<DBWatchProgress>>
+    /**
+     * Observes the most recently updated progress together with its media,
+     * which is being walked in order of the [DBWatchProgress.lastUpdated] index.
+     * Progress of media which isn't stored in the database is skipped.
+     */
+    @Query("""
+        SELECT DBWatchProgress.*,
+            DBMedia.extensionId AS media_extensionId, DBMedia.id AS media_id, DBMedia.title AS media_title,
+            DBMedia.poster AS media_poster, DBMedia.type AS media_type, DBMedia.episodes AS media_episodes,
+            DBMedia.releaseDate AS media_releaseDate, DBMedia.ageRating AS media_ageRating, DBMedia.json AS media_json
+        FROM DBWatchProgress
+        INNER JOIN DBMedia ON DBMedia.extensionId = DBWatchProgress.extensionId AND DBMedia.id = DBWatchProgress.mediaId
+        WHERE DBWatchProgress.progress != -1
+        ORDER BY DBWatchProgress.lastUpdated DESC
+        LIMIT :count
+    """)
+    abstract fun observeLatest(count: Int): Flow<List<DBWatchProgressWithMedia>>
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     abstract suspend fun add(progress: DBWatchProgress)
@@ -20,6 +37,31 @@ abstract class WatchProgressDao {
     @Query("SELECT * FROM DBWatchProgress WHERE extensionId = :extensionId AND mediaId = :mediaId AND variantId = :variantId")
     abstract suspend fun get(extensionId: String, mediaId: String, variantId: String): DBWatchProgress?
 
+    /**
+     * Returns progress of all watch variants of a single media at once.
+     * Prefer this over calling [get] for each variant, because long series can have thousands of them.
+     */
+    @Query("SELECT * FROM DBWatchProgress WHERE extensionId = :extensionId AND mediaId = :mediaId")
+    abstract suspend fun getAll(extensionId: String, mediaId: String): List<DBWatchProgress>
+
+    /**
+     * Same as [getAll], but only returns progress of the specified watch variants.
+     */
+    @Query("SELECT * FROM DBWatchProgress WHERE extensionId = :extensionId AND mediaId = :mediaId AND variantId IN (:variantIds)")
+    abstract suspend fun getAll(extensionId: String, mediaId: String, variantIds: Collection<String>): List<DBWatchProgress>
+
+    /**
+     * Used to migrate rows whose variant ids were created by an older version of the extension loader.
+     */
+    @Query("SELECT * FROM DBWatchProgress WHERE substr(variantId, 1, length(:prefix)) = :prefix")
+    abstract suspend fun getAllWithVariantPrefix(prefix: String): List<DBWatchProgress>
+
     @Delete
     abstract suspend fun delete(progress: DBWatchProgress)
+
+    @Transaction
+    open suspend fun replace(old: DBWatchProgress, new: DBWatchProgress) {
+        delete(old)
+        add(new)
+    }
 }
\ No newline at end of file
@@ -35,11 +35,21 @@ data class DBList(
         )
     ],
     indices = [
-        Index("mediaExtensionId", "mediaId", "listId")
+        Index("mediaExtensionId", "mediaId", "listId"),
+        Index("listId")
     ]
 )
 data class DBListMediaCrossRef(
     val mediaExtensionId: String,
     val mediaId: String,
     val listId: Long
-)
\ No newline at end of file
+)
+
+/**
+ * A single row of the library, used to load all lists with all their media at once.
+ * @param media Null if the list is empty.
+ */
+data class DBListWithMedia(
+    @Embedded val list: DBList,
+    @Embedded(prefix = "media_") val media: DBMediaPreview?
+)
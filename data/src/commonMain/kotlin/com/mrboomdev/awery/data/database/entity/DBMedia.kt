@@ -1,20 +1,70 @@
 package com.mrboomdev.awery.data.database.entity
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import com.mrboomdev.awery.extension.sdk.Media
 import kotlinx.serialization.json.Json
 
+/**
+ * The full [Media] is stored as [json], but the fields required to display
+ * it in a grid are duplicated into separate columns, so that lists can be
+ * loaded as [DBMediaPreview] without decoding any json at all.
+ */
 @Entity(primaryKeys = ["extensionId", "id"])
 data class DBMedia(
     val extensionId: String,
     val id: String,
+    @ColumnInfo(defaultValue = "''")
+    val title: String,
+    val poster: String?,
+    @ColumnInfo(defaultValue = "'WATCHABLE'")
+    val type: Media.Type,
+    val episodes: Int?,
+    val releaseDate: Long?,
+    val ageRating: String?,
     val json: String
 )
 
+/**
+ * A lightweight projection of the [DBMedia] without the [DBMedia.json] column.
+ * @param rowid Used as a cursor to paginate lists of media.
+ */
+data class DBMediaPreview(
+    val rowid: Long,
+    val extensionId: String,
+    val id: String,
+    val title: String,
+    val poster: String?,
+    val type: Media.Type,
+    val episodes: Int?,
+    val releaseDate: Long?,
+    val ageRating: String?
+)
+
 fun DBMedia.toMedia() = Json.decodeFromString<Media>(json)
 
+/**
+ * Note that the resulting [Media] contains only fields which are stored in the [DBMediaPreview],
+ * so the full one should be loaded before opening a media screen.
+ */
+fun DBMediaPreview.toPartialMedia() = Media(
+    id = id,
+    title = title,
+    poster = poster,
+    type = type,
+    episodes = episodes,
+    releaseDate = releaseDate,
+    ageRating = ageRating
+)
+
 fun Media.toDBMedia(extensionId: String) = DBMedia(
     extensionId = extensionId,
     id = id,
+    title = title,
+    poster = poster ?: largePoster ?: banner,
+    type = type,
+    episodes = episodes,
+    releaseDate = releaseDate,
+    ageRating = ageRating,
     json = Json.encodeToString(this)
-)
\ No newline at end of file
+)
@@ -1,17 +1,27 @@
 package com.mrboomdev.awery.data.database.entity
 
+import androidx.room.ColumnInfo
 import androidx.room.Embedded
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import androidx.room.Relation
 import kotlinx.serialization.json.Json
+import java.lang.System.currentTimeMillis
 
 /**
  * @param progress Equals to -1 if user just clicked on the watch variant (he didn't even watch it).
  * In that case it is used to mark the *latest* interacted with watch variant like season so
  * that he can remember where he left. Shouldn't be included in the "Continue watching" section if that's the case.
+ * @param lastUpdated Time in milliseconds when this progress was updated for the last time.
+ * Should be set to a new value every time when the progress is being changed.
  */
-@Entity(primaryKeys = ["extensionId", "mediaId", "variantId"])
+@Entity(
+    primaryKeys = ["extensionId", "mediaId", "variantId"],
+    indices = [
+        Index("lastUpdated")
+    ]
+)
 data class DBWatchProgress(
     val extensionId: String,
     val mediaId: String,
@@ -19,5 +29,12 @@ data class DBWatchProgress(
     val progress: Long,
     val maxProgress: Long? = null,
     val title: String,
-    val thumbnail: String? = null
-)
\ No newline at end of file
+    val thumbnail: String? = null,
+    @ColumnInfo(defaultValue = "0")
+    val lastUpdated: Long = currentTimeMillis()
+)
+
+data class DBWatchProgressWithMedia(
+    @Embedded val progress: DBWatchProgress,
+    @Embedded(prefix = "media_") val media: DBMedia
+)
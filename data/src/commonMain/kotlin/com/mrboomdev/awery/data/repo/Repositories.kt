@@ -3,28 +3,63 @@ package com.mrboomdev.awery.data.repo
 import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.core.http
 import com.mrboomdev.awery.core.utils.Log
-import com.mrboomdev.awery.data.repo.Repository
-import com.mrboomdev.awery.data.database.entity.DBRepository
-import io.ktor.client.request.get
-import io.ktor.client.statement.bodyAsText
+import io.ktor.client.plugins.ResponseException
+import io.ktor.client.request.prepareGet
+import io.ktor.client.statement.bodyAsChannel
+import io.ktor.utils.io.jvm.javaio.toInputStream
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.withContext
+import java.io.IOException
+import java.io.PushbackInputStream
 
 object Repositories {
+	/**
+	 * The format is recognized by the first character of the index, so that
+	 * it is downloaded only once and Yomi ones can still be decoded while being downloaded.
+	 */
 	suspend fun fetch(url: String): Repository {
-		val response = Awery.http.get(url).bodyAsText()
-		
-		try {
-			return YomiRepository.parse(url, response)
-		} catch(e: Exception) {
-			Log.e("Repositories", "Failed to parse an yomi repository!", e)
+		// Network failures are reported as they are, only an index which couldn't be parsed is invalid.
+		return Awery.http.prepareGet(url).execute { response ->
+			val index = PushbackInputStream(response.bodyAsChannel().toInputStream())
 			
 			try {
-				return CloudstreamRepository.parse(url, response)
-			} catch(e2: Exception) {
-				Log.e("Repositories", "Failed to parse an cloudstream repository!", e2)
+				// Yomi indexes are arrays of extensions, while Cloudstream ones are objects.
+				if(withContext(Dispatchers.IO) { index.peekJsonStart() } == '['.code) {
+					YomiRepository.parse(url, index)
+				} else {
+					CloudstreamRepository.parse(url, withContext(Dispatchers.IO) {
+						index.readBytes().decodeToString()
+					})
+				}
+			} catch(e: CancellationException) {
+				throw e
+			} catch(e: IOException) {
+				throw e
+			} catch(e: ResponseException) {
+				throw e
+			} catch(e: InvalidRepositoryException) {
+				throw e
+			} catch(e: Exception) {
+				Log.e("Repositories", "Failed to parse a repository!", e)
+				throw InvalidRepositoryException("Unsupported repository format!")
+			}
+		}
+	}
+	
+	/**
+	 * @return The first character which isn't a whitespace, without consuming it.
+	 */
+	private fun PushbackInputStream.peekJsonStart(): Int {
+		while(true) {
+			val byte = read()
+			
+			if(byte == -1 || !byte.toChar().isWhitespace()) {
+				if(byte != -1) unread(byte)
+				return byte
 			}
 		}
-		
-		throw InvalidRepositoryException("Unsupported repository format!")
 	}
 }
 
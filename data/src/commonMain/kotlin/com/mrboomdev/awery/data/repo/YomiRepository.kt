@@ -3,33 +3,52 @@ package com.mrboomdev.awery.data.repo
 import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.core.http
 import com.mrboomdev.awery.data.database.entity.DBRepository
-import io.ktor.client.request.get
-import io.ktor.client.statement.bodyAsText
+import com.mrboomdev.awery.core.utils.bodyAsJson
+import io.ktor.client.request.prepareGet
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.withContext
+import kotlinx.serialization.ExperimentalSerializationApi
 import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.DecodeSequenceMode
 import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.decodeToSequence
+import java.io.InputStream
 
 object YomiRepository {
 	private val jsonFormat = Json {
 		ignoreUnknownKeys = true
 	}
 	
-	suspend fun parse(url: String, json: String): Repository {
+	/**
+	 * Indexes of large repositories take megabytes, so items are decoded one by one
+	 * while the [index] is still being downloaded, instead of buffering all of it first.
+	 */
+	@OptIn(ExperimentalSerializationApi::class)
+	suspend fun parse(url: String, index: InputStream): Repository = coroutineScope {
 		val baseUrl = url.substringBeforeLast("/")
 		
-		val meta = jsonFormat.decodeFromString<MetaWrapper>(
-			Awery.http.get("$baseUrl/repo.json").bodyAsText()
-		).meta
+		val meta = async {
+			Awery.http.prepareGet("$baseUrl/repo.json").bodyAsJson<MetaWrapper>().meta
+		}
 		
-		return Repository(
+		val items = withContext(Dispatchers.IO) {
+			jsonFormat.decodeToSequence<Item>(
+				index, 
+				DecodeSequenceMode.ARRAY_WRAPPED
+			).map { it.toRepoItem(baseUrl) }.toList()
+		}
+		
+		Repository(
 			info = DBRepository(
 				extensionId = "yomi",
 				url = url,
-				name = meta.name
+				name = meta.await().name
 			),
 			
-			items = jsonFormat.decodeFromString<List<Item>>(json).map { 
-				it.toRepoItem(baseUrl)
-			}
+			items = items
 		)
 	}
 	
@@ -49,9 +49,24 @@ object AwerySettings {
      * From 0 to 100
      */
     val wallpaperOpacity by setting(50)
+
+    /**
+     * Size of the extensions network cache in MiB. Applied after restart.
+     */
+    val networkCacheSize by setting(250)
+
+    /**
+     * How much of the network cache in MiB a single host may occupy.
+     */
+    val networkCacheHostQuota by setting(50)
     
     val introDidWelcome by setting(false)
     val introDidTheme by setting(false)
+
+    /**
+     * Whether the watch progress saved with legacy Aniyomi variant ids has been re-encoded.
+     */
+    val didMigrateWatchVariantIds by setting(false)
     
     enum class NavigationLabels {
         SHOW, ACTIVE, HIDE
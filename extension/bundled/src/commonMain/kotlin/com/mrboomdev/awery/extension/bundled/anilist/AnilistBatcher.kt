@@ -0,0 +1,231 @@
+package com.mrboomdev.awery.extension.bundled.anilist
+
+import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistRequest
+import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistResponse
+import com.mrboomdev.awery.extension.bundled.anilist.query.AnilistQuery
+import io.ktor.client.HttpClient
+import io.ktor.client.plugins.ResponseException
+import io.ktor.client.request.preparePost
+import io.ktor.client.request.setBody
+import io.ktor.client.statement.HttpResponse
+import io.ktor.client.statement.bodyAsChannel
+import io.ktor.client.statement.bodyAsText
+import io.ktor.http.Headers
+import io.ktor.http.HttpStatusCode
+import io.ktor.utils.io.jvm.javaio.toInputStream
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonElement
+import kotlinx.serialization.json.JsonNull
+import kotlinx.serialization.json.JsonPrimitive
+import kotlinx.serialization.json.decodeFromStream
+import java.lang.System.currentTimeMillis
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.Duration.Companion.minutes
+
+/**
+ * Sends queries made at about the same time as a single GraphQL document,
+ * where each one of them is a separate root field under its own alias.
+ *
+ * Results are remembered for a few minutes by the normalized query, identical queries
+ * which are still in flight share a single result, and requests are paused
+ * once the server says that the rate limit has been reached.
+ */
+internal class AnilistBatcher(private val httpClient: HttpClient) {
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private val mutex = Mutex()
+    private val pending = mutableListOf<Pending>()
+    private val inFlight = mutableMapOf<String, CompletableDeferred<JsonElement>>()
+    private val cache = object : LinkedHashMap<String, CachedResult>(16, .75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, CachedResult>) = size > CACHE_SIZE
+    }
+
+    private var isFlushScheduled = false
+    private var blockedUntil = 0L
+
+    private class Pending(
+        val key: String,
+        val field: String,
+        val result: CompletableDeferred<JsonElement>
+    )
+
+    private class CachedResult(
+        val data: JsonElement,
+        val time: Long
+    )
+
+    suspend fun <T> query(query: AnilistQuery<T>): T {
+        val field = query.toGraphQLField()
+        val key = normalize(field)
+
+        // Only the cached slice is taken under the lock, decoding it happens after it's released.
+        val result = mutex.withLock {
+            cache[key]?.takeIf { currentTimeMillis() - it.time < CACHE_DURATION.inWholeMilliseconds }?.let {
+                CompletableDeferred(it.data)
+            } ?: enqueue(key, field)
+        }
+
+        return query.getResult(result.await())
+    }
+
+    /**
+     * Must be called under the [mutex].
+     */
+    private fun enqueue(key: String, field: String): CompletableDeferred<JsonElement> {
+        return inFlight[key] ?: CompletableDeferred<JsonElement>().also { result ->
+            inFlight[key] = result
+            pending += Pending(key, field, result)
+
+            if(!isFlushScheduled) {
+                isFlushScheduled = true
+
+                scope.launch {
+                    // Give other queries made by the same screen a chance to join.
+                    delay(BATCH_WINDOW)
+                    flush()
+                }
+            }
+        }
+    }
+
+    private suspend fun flush() {
+        val batch = mutex.withLock {
+            isFlushScheduled = false
+            pending.toList().also { pending.clear() }
+        }
+
+        batch.chunked(MAX_BATCH_SIZE).forEach { chunk ->
+            scope.launch { send(chunk) }
+        }
+    }
+
+    private suspend fun send(batch: List<Pending>) {
+        val response = try {
+            request(batch)
+        } catch(t: Throwable) {
+            if(batch.size > 1) {
+                // The whole document may have been rejected because of a single bad query
+                // or the total complexity, so try each one of them separately.
+                batch.forEach { scope.launch { send(listOf(it)) } }
+                return
+            }
+
+            complete(batch.single(), null, t)
+            return
+        }
+
+        batch.forEachIndexed { index, item ->
+            val data = response.data?.get(alias(index))
+
+            if(data == null || data is JsonNull) {
+                val errors = response.errors?.filter { error ->
+                    (error.path?.firstOrNull() as? JsonPrimitive)?.content.let { it == null || it == alias(index) }
+                }
+
+                complete(item, null, IllegalStateException(errors?.joinToString { it.message } ?: "No data was returned!"))
+            } else complete(item, data, null)
+        }
+    }
+
+    @OptIn(ExperimentalSerializationApi::class)
+    private suspend fun request(batch: List<Pending>): AnilistResponse {
+        val document = batch.withIndex().joinToString("\n", "query {\n", "\n}") { (index, item) ->
+            "${alias(index)}: ${item.field}"
+        }
+
+        while(true) {
+            val now = currentTimeMillis()
+            val waitUntil = mutex.withLock { blockedUntil }
+
+            if(waitUntil > now) {
+                delay(waitUntil - now)
+            }
+
+            return try {
+                httpClient.preparePost {
+                    setBody(Json.encodeToString(AnilistRequest(document)))
+                }.execute { response ->
+                    updateRateLimit(response)
+                    val channel = response.bodyAsChannel()
+
+                    // Pages are decoded while they're still being downloaded.
+                    withContext(Dispatchers.IO) {
+                        json.decodeFromStream<AnilistResponse>(channel.toInputStream())
+                    }
+                }
+            } catch(e: ResponseException) {
+                updateRateLimit(e.response)
+
+                if(e.response.status == HttpStatusCode.TooManyRequests) {
+                    continue
+                }
+
+                // Anilist responds with an error status if any field has failed,
+                // even though all other ones may be fine.
+                runCatching {
+                    json.decodeFromString<AnilistResponse>(e.response.bodyAsText())
+                }.getOrNull()?.takeIf { it.data != null }?.also { return it }
+
+                throw e
+            }
+        }
+    }
+
+    /**
+     * Anilist tells how many requests are left within the current minute
+     * and when will the limit be reset.
+     */
+    private suspend fun updateRateLimit(response: HttpResponse) {
+        val headers = response.headers
+        val retryAfter = headers.long("Retry-After")
+        val remaining = headers.long("X-RateLimit-Remaining")
+        val reset = headers.long("X-RateLimit-Reset")
+
+        val until = when {
+            retryAfter != null -> currentTimeMillis() + retryAfter * 1000
+            remaining == 0L && reset != null -> reset * 1000
+            response.status == HttpStatusCode.TooManyRequests -> currentTimeMillis() + 60_000
+            else -> return
+        }
+
+        mutex.withLock {
+            blockedUntil = maxOf(blockedUntil, until)
+        }
+    }
+
+    private suspend fun complete(item: Pending, data: JsonElement?, error: Throwable?) {
+        mutex.withLock {
+            inFlight.remove(item.key)
+
+            if(data != null) {
+                cache[item.key] = CachedResult(data, currentTimeMillis())
+            }
+        }
+
+        if(data != null) item.result.complete(data)
+        else item.result.completeExceptionally(error!!)
+    }
+
+    private fun Headers.long(name: String) = get(name)?.trim()?.toLongOrNull()
+    private fun alias(index: Int) = "q$index"
+    private fun normalize(field: String) = field.split(whitespace).filter { it.isNotEmpty() }.joinToString(" ")
+
+    private companion object {
+        const val MAX_BATCH_SIZE = 10
+        const val CACHE_SIZE = 200
+        val BATCH_WINDOW = 25.milliseconds
+        val CACHE_DURATION = 5.minutes
+        val whitespace = "\\s+".toRegex()
+        val json = Json { ignoreUnknownKeys = true }
+    }
+}
@@ -1,7 +1,5 @@
 package com.mrboomdev.awery.extension.bundled.anilist
 
-import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistRequest
-import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistResponse
 import com.mrboomdev.awery.extension.bundled.anilist.query.AnilistQuery
 import com.mrboomdev.awery.extension.sdk.Context
 import com.mrboomdev.awery.extension.sdk.Extension
@@ -12,12 +10,8 @@ import io.ktor.client.engine.cio.CIO
 import io.ktor.client.plugins.HttpTimeout
 import io.ktor.client.plugins.compression.ContentEncoding
 import io.ktor.client.plugins.defaultRequest
-import io.ktor.client.request.post
-import io.ktor.client.request.setBody
-import io.ktor.client.statement.bodyAsText
 import io.ktor.http.ContentType
 import io.ktor.http.contentType
-import kotlinx.serialization.json.Json
 
 class AnilistExtension(private val context: Context): Extension {
     override val name = "Anilist"
@@ -52,12 +46,13 @@ class AnilistExtension(private val context: Context): Extension {
             }
         }
         
+        private val batcher = AnilistBatcher(httpClient)
+
+        /**
+         * Queries made at about the same time are sent together within a single request.
+         */
         suspend fun <T> query(query: AnilistQuery<T>): T {
-            return httpClient.post {
-                setBody(Json.encodeToString(AnilistRequest(query)))
-            }.bodyAsText().let {
-                query.getResult(Json.decodeFromString<AnilistResponse>(it))
-            }
+            return batcher.query(query)
         }
     }
 }
\ No newline at end of file
@@ -95,6 +95,10 @@ fun AnilistMedia.toMedia(): Media {
             title.english,
             title.romaji,
             title.native
-        ).filterNot { it == primaryTitle }
+        ).filterNot { it == primaryTitle },
+        
+        extras = buildMap { 
+            coverImage.medium?.also { put(Media.EXTRA_SMALL_POSTER, it) }
+        }
     )
 }
\ No newline at end of file
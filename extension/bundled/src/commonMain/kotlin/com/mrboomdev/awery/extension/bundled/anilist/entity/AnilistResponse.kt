@@ -1,16 +1,22 @@
 package com.mrboomdev.awery.extension.bundled.anilist.entity
 
 import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.JsonElement
+import kotlinx.serialization.json.JsonObject
 
-@Suppress("PropertyName")
+/**
+ * @param data Values of root fields by their aliases.
+ */
 @Serializable
 data class AnilistResponse(
-    val data: Data?
+    val data: JsonObject? = null,
+    val errors: List<Error>? = null
 ) {
     @Serializable
-    data class Data(
-        val Page: AnilistPage? = null,
-        val Media: AnilistMedia? = null
+    data class Error(
+        val message: String,
+        val status: Int? = null,
+        val path: List<JsonElement>? = null
     )
 }
 
@@ -23,4 +29,4 @@ data class AnilistPage(
     data class Info(
         val hasNextPage: Boolean
     )
-}
\ No newline at end of file
+}
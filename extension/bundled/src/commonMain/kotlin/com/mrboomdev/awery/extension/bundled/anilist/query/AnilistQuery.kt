@@ -1,8 +1,16 @@
 package com.mrboomdev.awery.extension.bundled.anilist.query
 
-import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistResponse
+import kotlinx.serialization.json.JsonElement
 
 interface AnilistQuery<T> {
-    fun toGraphQLQuery(): String
-    fun getResult(response: AnilistResponse): T
-}
\ No newline at end of file
+    /**
+     * A single root field of the query without the surrounding `query { }`,
+     * so that multiple queries can be sent within a single request.
+     */
+    fun toGraphQLField(): String
+
+    /**
+     * @param data Value of the root field returned by the server.
+     */
+    fun getResult(data: JsonElement): T
+}
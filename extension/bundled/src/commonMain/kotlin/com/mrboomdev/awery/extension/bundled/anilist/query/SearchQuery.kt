@@ -2,9 +2,10 @@ package com.mrboomdev.awery.extension.bundled.anilist.query
 
 import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistMedia
 import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistPage
-import com.mrboomdev.awery.extension.bundled.anilist.entity.AnilistResponse
 import com.mrboomdev.awery.extension.bundled.anilist.entity.FuzzyDateInt
 import com.mrboomdev.awery.extension.bundled.anilist.graphqlParams
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonElement
 
 data class SearchQuery(
     val page: Int,
@@ -17,57 +18,55 @@ data class SearchQuery(
     val endDate: FuzzyDateInt? = null,
     val status: AnilistMedia.Status? = null
 ): AnilistQuery<Pair<AnilistPage.Info, List<AnilistMedia>>> {
-    override fun toGraphQLQuery() = """
-        query {
-            Page(
-                page: $page, 
-                perPage: $perPage
-            ) {
-                media(${graphqlParams(
-                    "search" to search?.let { it.ifBlank { null } },
-                    "sort" to sort,
-                    "status" to status,
-                    "isAdult" to isAdult,
-                    "type" to type,
-                    "startDate" to startDate?.value,
-                    "endDate" to endDate?.value
-                )}) {
-                    id
-                    type
-                    description
-                    isAdult
-                    siteUrl
-                    bannerImage
-                    genres
-                    episodes
-                    chapters
-                    countryOfOrigin
-                    
-                    startDate {
-                        year month day
-                    }
-                    
-                    tags {
-                        name isAdult
-                    }
-                    
-                    coverImage {
-                        medium large extraLarge
-                    }
-                    
-                    title {
-                        english romaji native
-                    }
+    override fun toGraphQLField() = """
+        Page(
+            page: $page, 
+            perPage: $perPage
+        ) {
+            media(${graphqlParams(
+                "search" to search?.let { it.ifBlank { null } },
+                "sort" to sort,
+                "status" to status,
+                "isAdult" to isAdult,
+                "type" to type,
+                "startDate" to startDate?.value,
+                "endDate" to endDate?.value
+            )}) {
+                id
+                type
+                description
+                isAdult
+                siteUrl
+                bannerImage
+                genres
+                episodes
+                chapters
+                countryOfOrigin
+                
+                startDate {
+                    year month day
+                }
+                
+                tags {
+                    name isAdult
                 }
                 
-                pageInfo {
-                    hasNextPage
+                coverImage {
+                    medium large extraLarge
                 }
+                
+                title {
+                    english romaji native
+                }
+            }
+            
+            pageInfo {
+                hasNextPage
             }
         }
     """.trimIndent()
 
-    override fun getResult(response: AnilistResponse): Pair<AnilistPage.Info, List<AnilistMedia>> {
-        return response.data!!.Page!!.let { it.pageInfo to it.media!! }
+    override fun getResult(data: JsonElement): Pair<AnilistPage.Info, List<AnilistMedia>> {
+        return Json.decodeFromJsonElement<AnilistPage>(data).let { it.pageInfo to it.media!! }
     }
 }
\ No newline at end of file
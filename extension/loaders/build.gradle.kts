@@ -79,5 +79,22 @@ kotlin {
                 implementation(libs.quickjs.desktop)
             }
         }
+
+        val desktopTest by getting {
+            dependencies {
+                implementation(libs.kotlin.test)
+                implementation(libs.kotlinx.coroutines.core)
+            }
+        }
+    }
+}
+
+// Benchmarks take a while, so they're only run if asked for with -Pawery.benchmark
+tasks.withType<Test>().configureEach {
+    if(!project.hasProperty("awery.benchmark")) {
+        filter {
+            excludeTestsMatching("*Benchmark")
+            isFailOnNoMatchingTests = false
+        }
     }
 }
\ No newline at end of file
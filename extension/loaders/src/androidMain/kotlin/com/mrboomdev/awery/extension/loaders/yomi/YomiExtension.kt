@@ -32,7 +32,9 @@ import java.io.File
 open class YomiExtension(
     internal val packageInfo: PackageInfo
 ): Extension {
-    private val sources = YomiLoader.initAllSources(this)
+    // Creating a class loader and reflecting all sources is slow,
+    // so it's done only once somebody actually needs them.
+    private val sources by lazy { YomiLoader.initAllSources(this) }
     override val loadException: ExtensionLoadException? = null
 
     private val lazyName by lazy {
@@ -57,7 +59,7 @@ open class YomiExtension(
     }
     
     private val lazyIsNsfw by lazy { 
-        sources.any { it.isNsfw }
+        packageInfo.applicationInfo?.metaData?.getInt(AniyomiLoader.nsfwMeta) == 1
     }
 
     override val name: String
@@ -2,15 +2,31 @@ package eu.kanade.tachiyomi.network
 
 import app.cash.quickjs.QuickJs
 import com.mrboomdev.awery.core.utils.PlatformSdk
-import kotlinx.coroutines.Dispatchers
 
 @PlatformSdk
 actual object JavaScriptEngine {
+    private val pool by lazy {
+        // QuickJs doesn't allow to limit the memory, so we rely on the pool size
+        // and on runtimes being replaced after a limited number of scripts instead.
+        JavaScriptRuntimePool(
+            name = "JavaScriptEngine",
+            create = {
+                QuickJs.create().apply {
+                    evaluate(JavaScriptRuntimePool.SNAPSHOT_SCRIPT)
+                }
+            },
+            reset = { it.evaluate(JavaScriptRuntimePool.RESET_SCRIPT) },
+            close = { it.close() }
+        )
+    }
+
     @PlatformSdk
-    actual suspend fun <T> evaluate(script: String): T = with(Dispatchers.IO) {
-        QuickJs.create().use {
-            @Suppress("UNCHECKED_CAST")
-            it.evaluate(script) as T
+    actual suspend fun <T> evaluate(script: String): T = pool.use {
+        val bytecode = JavaScriptBytecodeCache.getOrCompile(script) { source ->
+            it.compile(source, "script.js")
         }
+
+        @Suppress("UNCHECKED_CAST")
+        it.execute(bytecode) as T
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,246 @@
+package com.mrboomdev.awery.extension.loaders
+
+import com.mrboomdev.awery.core.utils.logger
+import com.mrboomdev.awery.core.utils.toJavaFile
+import com.mrboomdev.awery.extension.sdk.Either
+import com.mrboomdev.awery.extension.sdk.Extension
+import com.mrboomdev.awery.extension.sdk.ExtensionLoadException
+import com.mrboomdev.awery.extension.sdk.Feed
+import com.mrboomdev.awery.extension.sdk.Media
+import com.mrboomdev.awery.extension.sdk.Preference
+import com.mrboomdev.awery.extension.sdk.Results
+import com.mrboomdev.awery.extension.sdk.Video
+import com.mrboomdev.awery.extension.sdk.WatchVariant
+import com.mrboomdev.awery.extension.sdk.modules.CatalogModule
+import com.mrboomdev.awery.extension.sdk.modules.ManageableModule
+import com.mrboomdev.awery.extension.sdk.modules.ManagerModule
+import com.mrboomdev.awery.extension.sdk.modules.Module
+import com.mrboomdev.awery.extension.sdk.modules.TrackerModule
+import com.mrboomdev.awery.extension.sdk.modules.WatchModule
+import io.github.vinceglb.filekit.FileKit
+import io.github.vinceglb.filekit.div
+import io.github.vinceglb.filekit.filesDir
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.concurrent.Volatile
+
+private val logger by logger()
+
+/**
+ * Everything about extensions which the app needs to know before actually using them,
+ * remembered from the previous run. Extensions found in the catalog are represented by
+ * [CatalogedExtension]s, so that their code is only loaded once any module gets invoked.
+ */
+internal object ExtensionCatalog {
+	private val file by lazy {
+		(FileKit.filesDir / "extensions/catalog.json").toJavaFile()
+	}
+
+	private val entries: MutableMap<String, Entry> by lazy {
+		ConcurrentHashMap(try {
+			if(file.exists()) {
+				Json.decodeFromString<List<Entry>>(file.readText()).associateBy { it.id }
+			} else emptyMap()
+		} catch(t: Throwable) {
+			logger.e("Failed to read the extensions catalog, it will be rebuilt.", t)
+			emptyMap()
+		})
+	}
+
+	enum class ModuleType {
+		CATALOG, WATCH, TRACKER, MANAGER, MANAGEABLE
+	}
+
+	@Serializable
+	data class Entry(
+		val id: String,
+		val name: String,
+		val version: String,
+		val isNsfw: Boolean,
+		val lang: String? = null,
+		val webpage: String? = null,
+		val modules: Set<ModuleType>,
+		val children: List<Entry> = emptyList()
+	)
+
+	/**
+	 * @return A lazy replacement of the [extension] if it was cataloged with the same version.
+	 */
+	fun wrap(extension: Extension): Extension {
+		if(extension.loadException != null) return extension
+		val entry = entries[extension.id]?.takeIf { it.version == extension.version } ?: return extension
+		return CatalogedExtension(entry, parent = null, real = extension)
+	}
+
+	fun isUpToDate(id: String, version: String) = entries[id]?.version == version
+
+	/**
+	 * Walks the whole tree of the [extension], reusing modules and children already held by the [registry].
+	 * Trees with failed extensions aren't remembered, so that they would be retried next time.
+	 */
+	suspend fun record(extension: Extension, registry: ExtensionRegistry) {
+		if(extension is CatalogedExtension) return
+		entries[extension.id] = createEntry(extension, registry) ?: return
+	}
+
+	/**
+	 * Removes extensions which weren't met during the last load.
+	 */
+	fun retain(ids: Collection<String>) {
+		entries.keys.retainAll(ids.toSet())
+	}
+
+	fun save() {
+		try {
+			file.parentFile.mkdirs()
+			file.writeText(Json.encodeToString(entries.values.toList()))
+		} catch(t: Throwable) {
+			logger.e("Failed to save the extensions catalog!", t)
+		}
+	}
+
+	private suspend fun createEntry(extension: Extension, registry: ExtensionRegistry): Entry? {
+		if(extension.loadException != null || extension is FailedExtension) return null
+		val modules = registry.modulesOf(extension)
+
+		// The registry doesn't keep children of managers which have failed to list them,
+		// so ask again instead of remembering an incomplete tree.
+		val children = (registry.snapshot.value.children[extension.id]
+			?: modules.filterIsInstance<ManagerModule>().flatMap { it.getAll().toList() })
+			.map { createEntry(it, registry) ?: return null }
+
+		return Entry(
+			id = extension.id,
+			name = extension.name,
+			version = extension.version,
+			isNsfw = extension.isNsfw,
+			lang = extension.lang,
+			webpage = extension.webpage,
+			modules = modules.flatMapTo(mutableSetOf()) { it.types },
+			children = children
+		)
+	}
+
+	private val Module.types get() = buildList {
+		if(this@types is CatalogModule) add(ModuleType.CATALOG)
+		if(this@types is WatchModule) add(ModuleType.WATCH)
+		if(this@types is TrackerModule) add(ModuleType.TRACKER)
+		if(this@types is ManagerModule) add(ModuleType.MANAGER)
+		if(this@types is ManageableModule) add(ModuleType.MANAGEABLE)
+	}
+}
+
+/**
+ * Answers everything from the catalog and only touches the real extension
+ * once one of its modules is actually used.
+ *
+ * @param real The extension itself for top-level ones. Children are looked up
+ * in the parent's manager module, which is done by suspending instead of blocking the caller.
+ */
+internal class CatalogedExtension(
+	private val entry: ExtensionCatalog.Entry,
+	private val parent: CatalogedExtension?,
+	private val real: Extension?
+): Extension {
+	override val id get() = entry.id
+	override val name get() = entry.name
+	override val version get() = entry.version
+	override val isNsfw get() = entry.isNsfw
+	override val lang get() = entry.lang
+	override val webpage get() = entry.webpage
+	override val icon get() = if(parent != null) parent.icon else real?.icon
+	override val loadException: ExtensionLoadException? get() = null
+
+	private val ownModules = real?.let { lazy { it.createModules() } }
+	private val childMutex = Mutex()
+
+	@Volatile
+	private var childModules: Collection<Module>? = null
+
+	private suspend fun realModules(): Collection<Module> {
+		ownModules?.also { return it.value }
+		childModules?.also { return it }
+
+		return childMutex.withLock {
+			// Class loading is the expensive part, so do it only once somebody needs the child.
+			childModules ?: parent!!.findRealChild(id).createModules().also { childModules = it }
+		}
+	}
+
+	/**
+	 * For modules having non-suspending methods. Children providing such are resolved
+	 * while their parent is being listed, so that they're already here.
+	 */
+	private fun loadedModules(): Collection<Module> {
+		return ownModules?.value ?: childModules
+			?: throw IllegalStateException("$id was used before it has been resolved!")
+	}
+
+	private suspend inline fun <reified T: Module> realModule(): T {
+		return realModules().firstOrNull { it is T } as T?
+			?: throw ExtensionLoadException("${T::class.simpleName} of $id has disappeared since the last launch!")
+	}
+
+	private inline fun <reified T: Module> loadedModule(): T {
+		return loadedModules().firstOrNull { it is T } as T?
+			?: throw ExtensionLoadException("${T::class.simpleName} of $id has disappeared since the last launch!")
+	}
+
+	private suspend fun findRealChild(id: String): Extension {
+		return realModules().filterIsInstance<ManagerModule>().firstNotNullOfOrNull { it.get(id) }
+			?: throw ExtensionLoadException("Extension $id has disappeared since the last launch!")
+	}
+
+	override fun createModules() = entry.modules.map { type ->
+		when(type) {
+			ExtensionCatalog.ModuleType.CATALOG -> object : CatalogModule {
+				override suspend fun getDefaultFilters() = realModule<CatalogModule>().getDefaultFilters()
+				override suspend fun search(filters: List<Preference<*>>, page: Int) = realModule<CatalogModule>().search(filters, page)
+				override suspend fun updateMedia(media: Media) = realModule<CatalogModule>().updateMedia(media)
+				override suspend fun getFeeds(page: Int) = realModule<CatalogModule>().getFeeds(page)
+				override suspend fun loadFeed(feed: Feed, page: Int) = realModule<CatalogModule>().loadFeed(feed, page)
+			}
+
+			ExtensionCatalog.ModuleType.WATCH -> object : WatchModule {
+				override suspend fun watch(media: Media, page: Int) = realModule<WatchModule>().watch(media, page)
+
+				override suspend fun watch(
+					watchVariant: WatchVariant,
+					page: Int
+				): Either<Video, Results<WatchVariant>> = realModule<WatchModule>().watch(watchVariant, page)
+			}
+
+			ExtensionCatalog.ModuleType.TRACKER -> object : TrackerModule {}
+
+			ExtensionCatalog.ModuleType.MANAGER -> object : ManagerModule {
+				private val children by lazy {
+					entry.children.map { child ->
+						CatalogedExtension(child, this@CatalogedExtension, real = null)
+					}
+				}
+
+				override fun getAll(): Flow<Extension> = flow {
+					for(child in children) {
+						if(ExtensionCatalog.ModuleType.MANAGEABLE in child.entry.modules) {
+							child.realModules()
+						}
+
+						emit(child)
+					}
+				}
+			}
+
+			ExtensionCatalog.ModuleType.MANAGEABLE -> object : ManageableModule {
+				override fun getPreferences() = loadedModule<ManageableModule>().getPreferences()
+				override fun onSavePreferences(preferences: List<Preference<*>>) = loadedModule<ManageableModule>().onSavePreferences(preferences)
+				override suspend fun uninstall() = realModule<ManageableModule>().uninstall()
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.mrboomdev.awery.extension.loaders
+
+import com.mrboomdev.awery.core.utils.logger
+import com.mrboomdev.awery.data.settings.AwerySettings
+import com.mrboomdev.awery.extension.sdk.Extension
+import com.mrboomdev.awery.extension.sdk.modules.CatalogModule
+import com.mrboomdev.awery.extension.sdk.modules.ManageableModule
+import com.mrboomdev.awery.extension.sdk.modules.ManagerModule
+import com.mrboomdev.awery.extension.sdk.modules.Module
+import com.mrboomdev.awery.extension.sdk.modules.TrackerModule
+import com.mrboomdev.awery.extension.sdk.modules.WatchModule
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.reflect.KClass
+
+private val logger by logger()
+
+private val moduleTypes = listOf(
+	CatalogModule::class,
+	WatchModule::class,
+	TrackerModule::class,
+	ManagerModule::class,
+	ManageableModule::class
+)
+
+/**
+ * Indexes the whole tree of extensions, children included, by id and by module type.
+ * Every change publishes a new immutable [Snapshot], so readers never have to lock anything.
+ */
+internal class ExtensionRegistry {
+	private val mutex = Mutex()
+	private val modules = ConcurrentHashMap<Extension, Collection<Module>>()
+	private val _snapshot = MutableStateFlow(Snapshot())
+	val snapshot = _snapshot.asStateFlow()
+
+	class Snapshot(
+		val roots: List<Extension> = emptyList(),
+		val children: Map<String, List<Extension>> = emptyMap(),
+		val byId: Map<String, Extension> = emptyMap(),
+		val byModule: Map<KClass<out Module>, Set<String>> = emptyMap()
+	) {
+		/**
+		 * Lists extensions in the same order as they're nested, parents first.
+		 * Children of disabled extensions are considered to be disabled too.
+		 */
+		fun walk(enabled: Boolean?, module: KClass<out Module>? = null): List<Extension> = buildList {
+			val withModule = module?.let { byModule[it].orEmpty() }
+
+			fun visit(extension: Extension) {
+				if(enabled != null && enabled != AwerySettings.isExtensionEnabled(extension.id)) return
+				if(withModule == null || extension.id in withModule) add(extension)
+				children[extension.id]?.forEach(::visit)
+			}
+
+			roots.forEach(::visit)
+		}
+	}
+
+	fun modulesOf(extension: Extension): Collection<Module> {
+		modules[extension]?.also { return it }
+		return extension.createModules().let { modules.putIfAbsent(extension, it) ?: it }
+	}
+
+	/**
+	 * Loads all children of the [extension] and indexes them.
+	 * An extension with the same id gets replaced.
+	 */
+	suspend fun add(extension: Extension) {
+		val children = mutableMapOf<String, List<Extension>>()
+		collectChildren(extension, children)
+
+		mutex.withLock {
+			val old = _snapshot.value
+			val removed = old.byId[extension.id]?.let { old.subtreeOf(it) }.orEmpty()
+
+			publish(
+				roots = old.roots.filter { it.id != extension.id } + extension,
+				children = old.children - removed.map { it.id }.toSet() + children,
+				removed = removed
+			)
+		}
+	}
+
+	suspend fun remove(extension: Extension) {
+		mutex.withLock {
+			val old = _snapshot.value
+			val removed = old.byId[extension.id]?.let { old.subtreeOf(it) } ?: return
+
+			publish(
+				roots = old.roots.filter { it.id != extension.id },
+				children = old.children - removed.map { it.id }.toSet(),
+				removed = removed
+			)
+		}
+	}
+
+	private fun publish(
+		roots: List<Extension>,
+		children: Map<String, List<Extension>>,
+		removed: List<Extension>
+	) {
+		removed.forEach { modules.remove(it) }
+
+		val byId = HashMap<String, Extension>()
+		val byModule = HashMap<KClass<out Module>, MutableSet<String>>()
+
+		fun visit(extension: Extension) {
+			byId[extension.id] = extension
+
+			for(module in modulesOf(extension)) {
+				for(type in moduleTypes) {
+					if(type.isInstance(module)) {
+						byModule.getOrPut(type) { HashSet() } += extension.id
+					}
+				}
+			}
+
+			children[extension.id]?.forEach(::visit)
+		}
+
+		roots.forEach(::visit)
+		_snapshot.value = Snapshot(roots, children, byId, byModule)
+	}
+
+	private suspend fun collectChildren(
+		extension: Extension,
+		into: MutableMap<String, List<Extension>>
+	) {
+		val children = try {
+			modulesOf(extension).filterIsInstance<ManagerModule>().flatMap { it.getAll().toList() }
+		} catch(e: CancellationException) {
+			throw e
+		} catch(t: Throwable) {
+			logger.e("Failed to load children of ${extension.id}", t)
+			emptyList()
+		}
+
+		if(children.isEmpty()) return
+		into[extension.id] = children
+		children.forEach { collectChildren(it, into) }
+	}
+
+	private fun Snapshot.subtreeOf(extension: Extension): List<Extension> = buildList {
+		fun visit(extension: Extension) {
+			add(extension)
+			children[extension.id]?.forEach(::visit)
+		}
+
+		visit(extension)
+	}
+}
@@ -1,52 +1,40 @@
 package com.mrboomdev.awery.extension.loaders
 
-import com.mrboomdev.awery.core.utils.await
 import com.mrboomdev.awery.core.utils.logger
 import com.mrboomdev.awery.data.settings.AwerySettings
 import com.mrboomdev.awery.extension.bundled.BundledExtensions
+import com.mrboomdev.awery.extension.loaders.yomi.WatchVariantCodec
 import com.mrboomdev.awery.extension.sdk.Extension
-import com.mrboomdev.awery.extension.sdk.modules.ManagerModule
 import com.mrboomdev.awery.extension.sdk.modules.Module
 import dev.mihon.injekt.patchInjekt
 import eu.kanade.tachiyomi.network.JavaScriptEngine
 import eu.kanade.tachiyomi.network.NetworkHelper
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.DelicateCoroutinesApi
-import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.channels.ProducerScope
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
-import kotlinx.coroutines.flow.SharingStarted
-import kotlinx.coroutines.flow.asFlow
 import kotlinx.coroutines.flow.asStateFlow
-import kotlinx.coroutines.flow.buffer
 import kotlinx.coroutines.flow.channelFlow
 import kotlinx.coroutines.flow.combine
-import kotlinx.coroutines.flow.combineTransform
 import kotlinx.coroutines.flow.emitAll
-import kotlinx.coroutines.flow.filter
-import kotlinx.coroutines.flow.firstOrNull
-import kotlinx.coroutines.flow.flatMapConcat
-import kotlinx.coroutines.flow.flatMapLatest
-import kotlinx.coroutines.flow.flatMapMerge
-import kotlinx.coroutines.flow.flattenConcat
-import kotlinx.coroutines.flow.flattenMerge
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.flow
-import kotlinx.coroutines.flow.flowOf
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.mapLatest
-import kotlinx.coroutines.flow.merge
-import kotlinx.coroutines.flow.stateIn
-import kotlinx.coroutines.flow.toList
-import kotlinx.coroutines.isActive
+import kotlinx.coroutines.flow.transformWhile
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.sync.Mutex
-import kotlinx.coroutines.sync.withLock
 import kotlinx.serialization.json.Json
 import uy.kohesive.injekt.Injekt
 import uy.kohesive.injekt.api.addSingleton
 import uy.kohesive.injekt.api.addSingletonFactory
-import kotlin.coroutines.CoroutineContext
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.reflect.KClass
 import kotlin.time.measureTime
 import kotlin.time.DurationUnit
 
@@ -56,21 +44,24 @@ private val logger by logger()
  * Manages the loading and retrieval of extensions.
  *
  * This object is responsible for loading all available extensions and providing access to them.
- * It ensures that extensions are loaded only once and provides a flow for observing them.
+ * All of them, including children of manager modules, are kept in an [ExtensionRegistry],
+ * so lookups by id or by module don't have to walk the whole tree each time.
  */
 object Extensions {
-    private val extensions = mutableMapOf<String, Extension>()
-    private val observableExtensions = MutableStateFlow<Collection<Extension>>(emptyList())
+    private val registry = ExtensionRegistry()
     private val observableIsLoading = MutableStateFlow(false)
-    private var pendingGetters = mutableListOf<Pair<CoroutineContext, ProducerScope<Extension>>>()
-    private val cachedModules = mutableMapOf<Extension, Collection<Module>>()
-    private val mutex = Mutex()
-    private var didLoad = false
+    private val didLoad = MutableStateFlow(false)
+
+    /**
+     * Work which outlives a single [loadAll], but not the app.
+     */
+    private val backgroundScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private var migration: Job? = null
     
     fun observeIsLoading() = observableIsLoading.asStateFlow()
 
     val Extension.cachedModules
-        get() = Extensions.cachedModules.getOrPut(this) { createModules() }
+        get() = registry.modulesOf(this)
 
     inline fun <reified T: Module> Extension.get() = 
         cachedModules.firstOrNull { it is T } as T?
@@ -78,97 +69,53 @@ object Extensions {
     inline fun <reified T: Module> Extension.has() = 
         cachedModules.any { it is T }
 
+    /**
+     * Suspends until all extensions are loaded if there is no such extension yet.
+     */
     suspend operator fun get(id: String): Extension? {
-        extensions[id]?.also { return it }
-        return getAll().firstOrNull { it.id == id }
+        registry.snapshot.value.byId[id]?.also { return it }
+        didLoad.first { it }
+        return registry.snapshot.value.byId[id]
     }
-    
+
+    /**
+     * Loads and indexes all children of the [extension] before publishing it.
+     */
     suspend fun add(extension: Extension) {
-        mutex.withLock {
-            extensions[extension.id] = extension
-            observableExtensions.emit(extensions.values.toList())
-        }
+        registry.add(extension)
     }
     
     suspend fun remove(extension: Extension) {
-        mutex.withLock {
-            extensions -= extension.id
-            observableExtensions.emit(extensions.values.toList())
-        }
+        registry.remove(extension)
     }
 
-    @OptIn(ExperimentalCoroutinesApi::class, DelicateCoroutinesApi::class)
-    fun observeAll(enabled: Boolean? = null) = observableExtensions
-        .mapLatest { extensions ->
-            extensions.filter { extension ->
-                if(enabled == null) true
-                else enabled == AwerySettings.isExtensionEnabled(extension.id)
-            }.map { extension ->
-                flow {
-                    emit(extension)
-                    emitAll(extension.getAllRecursively(enabled))
-                }
-            }.merge().toList()
-        }
+    fun observeAll(enabled: Boolean? = null): Flow<List<Extension>> = 
+        registry.snapshot.map { it.walk(enabled) }
 
     @JvmName("getAllWithModuleT")
     inline fun <reified T: Module> getAll(enabled: Boolean? = null) =
-        getAll(enabled).filter { extension ->
-            extension.cachedModules.any { it is T }
-        }
+        getAll(enabled, T::class)
 
-    @OptIn(ExperimentalCoroutinesApi::class)
-    fun getAll(
-        enabled: Boolean? = null
-    ): Flow<Extension> = getAllImpl().filter { extension ->
-        if(enabled == null) true
-        else enabled == AwerySettings.isExtensionEnabled(extension.id)
-    }.map { extension ->
-        flow {
-            emit(extension)
-            emitAll(extension.getAllRecursively(enabled))
-        }
-    }.flattenConcat()
-
-    private fun Extension.getAllRecursively(
-        enabled: Boolean?
-    ): Flow<Extension> = flow {
-        cachedModules.filterIsInstance<ManagerModule>().forEach { module ->
-            module.getAll().filter { extension ->
-                if(enabled == null) true
-                else enabled == AwerySettings.isExtensionEnabled(extension.id)
-            }.collect { child ->
-                emit(child)
-                emitAll(child.getAllRecursively(enabled))
-            }
-        }
-    }
+    fun getAll(enabled: Boolean? = null) = getAll(enabled, null)
 
     /**
-     * Simply collects all extensions from the top-level loader.
-     * This method does not use recursion so child
-     * extensions should be collected from [getAll].
+     * While extensions are still being loaded, emits new ones as soon as they get indexed
+     * and completes once all of them are there.
      */
-    private fun getAllImpl(): Flow<Extension> {
-        if(didLoad) {
-            return flow {
-                mutex.withLock {
-                    extensions.values.forEach { emit(it) }
-                }
-            }
-        }
+    @PublishedApi
+    internal fun getAll(
+        enabled: Boolean?,
+        module: KClass<out Module>?
+    ): Flow<Extension> = flow {
+        val emitted = hashSetOf<String>()
 
-        return channelFlow {
-            val key = coroutineContext to this
-            
-            mutex.withLock {
-                pendingGetters += key
-                extensions.values.forEach { send(it) }
+        emitAll(combine(registry.snapshot, didLoad, ::Pair).transformWhile { (snapshot, isLoaded) ->
+            for(extension in snapshot.walk(enabled, module)) {
+                if(emitted.add(extension.id)) emit(extension)
             }
-            
-            await { didLoad }
-            mutex.withLock { pendingGetters -= key }
-        }
+
+            !isLoaded
+        })
     }
 
     /**
@@ -178,51 +125,80 @@ object Extensions {
      * reload of extensions is required.
      */
     suspend fun loadAll() {
-        didLoad = false
+        didLoad.value = false
         observableIsLoading.emit(true)
         logger.i("Started loading all extensions")
 
+        val bundledIds = ConcurrentHashMap.newKeySet<String>()
+
         val loadDuration = measureTime {
             injectFuckingShit()
 
-            channelFlow {
-                launch {
-                    BundledExtensions.getAll { extensionId ->
-                        ContextImpl(extensionId)
-                    }.forEach { send(it) }
-                }
-                
-                loadAllImpl()
-            }.collect { extension ->
-                add(extension)
-
-                pendingGetters.forEach { key ->
-                    if(!key.first.isActive) {
-                        // Coroutine is no longer alive, so we have to remove it from the list by our own hands
-                        pendingGetters -= key
-                        return@forEach
+            coroutineScope {
+                channelFlow {
+                    launch {
+                        BundledExtensions.getAll { extensionId ->
+                            ContextImpl(extensionId)
+                        }.forEach {
+                            bundledIds += it.id
+                            send(it)
+                        }
                     }
 
-                    key.second.send(extension)
+                    loadAllImpl()
+                }.collect { loaded ->
+                    // Bundled extensions are cheap to create and their code may change with any app update,
+                    // so only installed ones are being replaced with what we remember about them.
+                    val extension = if(loaded.id in bundledIds) loaded else ExtensionCatalog.wrap(loaded)
+
+                    // Children are indexed right away, so don't let a slow one hold back all the others.
+                    launch { add(extension) }
                 }
             }
         }
 
-        if(pendingGetters.isNotEmpty()) {
-            logger.w("There are still some pending getters! " +
-                    "They may have received all the extensions due to thread racing.")
+        didLoad.value = true
+        observableIsLoading.emit(false)
+        logger.i("Loaded all extensions in ${loadDuration.toString(DurationUnit.SECONDS, 3)}!")
 
-            pendingGetters.forEach { key ->
-                key.second.close()
-            }
+        updateCatalog(registry.snapshot.value.roots.filter { it.id !in bundledIds })
+        migrateProgress()
+    }
 
-            pendingGetters.clear()
+    /**
+     * Old ids are still understood by the extensions,
+     * so the progress may be migrated at any time. Only runs until it succeeds once.
+     */
+    private fun migrateProgress() {
+        if(AwerySettings.didMigrateWatchVariantIds.value || migration?.isActive == true) return
+
+        migration = backgroundScope.launch {
+            try {
+                WatchVariantCodec.migrateProgress()
+            } catch(t: Throwable) {
+                logger.e("Failed to migrate the watch progress", t)
+            }
         }
+    }
 
-        didLoad = true
-        observableIsLoading.emit(false)
-        observableExtensions.emit(extensions.values.toList())
-        logger.i("Loaded all extensions in ${loadDuration.toString(DurationUnit.SECONDS, 3)}!")
+    /**
+     * Remembers extensions which weren't cataloged yet, so that
+     * the next launch won't have to load any of their code.
+     */
+    @OptIn(DelicateCoroutinesApi::class)
+    private fun updateCatalog(installed: List<Extension>) {
+        GlobalScope.launch(Dispatchers.IO) {
+            for(extension in installed) {
+                try {
+                    ExtensionCatalog.record(extension, registry)
+                } catch(t: Throwable) {
+                    logger.e("Failed to catalog ${extension.id}", t)
+                }
+            }
+
+            ExtensionCatalog.retain(installed.map { it.id })
+            ExtensionCatalog.save()
+        }
     }
 }
 
@@ -4,4 +4,25 @@ import com.mrboomdev.awery.extension.sdk.Media
 
 fun Media.getPoster() = poster ?: largePoster ?: banner
 fun Media.getLargePoster() = largePoster ?: poster ?: banner
-fun Media.getBanner() = banner ?: largePoster ?: poster
\ No newline at end of file
+fun Media.getBanner() = banner ?: largePoster ?: poster
+
+/**
+ * Picks the smallest poster which would still look sharp at the given [width] in pixels.
+ * Real sizes aren't known until images are downloaded, so each variant is expected
+ * to be about as wide as Anilist's one of the same kind.
+ */
+fun Media.getPoster(width: Int): String? {
+    val variants = listOfNotNull(
+        extras[Media.EXTRA_SMALL_POSTER]?.let { it to SMALL_POSTER_WIDTH },
+        poster?.let { it to POSTER_WIDTH },
+        largePoster?.let { it to LARGE_POSTER_WIDTH }
+    )
+
+    // Slight upscaling isn't noticeable, but downloading a twice as large image is.
+    return variants.firstOrNull { (_, variantWidth) -> variantWidth * 1.25f >= width }?.first
+        ?: variants.lastOrNull()?.first ?: banner
+}
+
+private const val SMALL_POSTER_WIDTH = 100
+private const val POSTER_WIDTH = 230
+private const val LARGE_POSTER_WIDTH = 460
@@ -27,9 +27,15 @@ import kotlinx.coroutines.runBlocking
 import net.lingala.zip4j.ZipFile
 import java.nio.file.Files.exists
 import kotlin.io.encoding.Base64
+import kotlin.jvm.Synchronized
 
+/**
+ * @param cachedManifest Manifest which was already parsed before, if any.
+ * Saves reading it from the disk once again.
+ */
 class ResolvedExtensionParent(
-	private val directory: PlatformFile
+	private val directory: PlatformFile,
+	cachedManifest: AweryExtensionManifest? = null
 ): Extension {
 	private val manifest: AweryExtensionManifest
 	private var children: Extension? = null
@@ -55,7 +61,7 @@ class ResolvedExtensionParent(
 	override val loadException get() = _loadException
 
 	init {
-		manifest = try {
+		manifest = cachedManifest ?: try {
 			runBlocking {
 				directory.resolve(AweryExtensionConstants.manifestPath).readString().let {
 					AweryExtensionConstants.manifestJsonFormat.decodeFromString(it)
@@ -80,7 +86,18 @@ class ResolvedExtensionParent(
 	override val webpage = manifest.webpage
 	override val lang = manifest.lang
 	
+	/**
+	 * Loads the platform binary ahead, so that it doesn't happen
+	 * while the extensions tree is being walked one by one.
+	 */
+	internal fun preload() {
+		loadChildren()
+	}
+	
+	@Synchronized
 	private fun loadChildren() {
+		if(children != null || loadException != null) return
+		
 		children = try {
 			loadMain(object : Extension by this {
 				override val id = manifest.id
@@ -102,9 +119,7 @@ class ResolvedExtensionParent(
 	override fun createModules() = listOf(
 		object : ManagerModule {
 			override fun getAll() = flow {
-				if(children == null && loadException == null) {
-					loadChildren()
-				}
+				loadChildren()
 				
 				if(children != null) {
 					emit(children!!)
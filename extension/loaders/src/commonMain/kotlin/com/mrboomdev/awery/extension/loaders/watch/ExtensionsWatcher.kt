@@ -11,17 +11,16 @@ import com.mrboomdev.awery.extension.sdk.modules.WatchModule
 import com.mrboomdev.awery.resources.Res
 import com.mrboomdev.awery.resources.extensions
 import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.filter
-import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
 import org.jetbrains.compose.resources.getString
 
 class ExtensionsWatcher(
-	private val ogExtension: String,
+	ogExtension: String,
 	val media: Media,
-	private val coroutineScope: CoroutineScope
+	coroutineScope: CoroutineScope
 ): WatcherNode.Variants {
+	private val loader = WatcherLoader(ogExtension, coroutineScope)
 	private val _children = mutableStateListOf<WatcherNode>()
 	override val children: List<WatcherNode> = _children
 	
@@ -47,16 +46,11 @@ class ExtensionsWatcher(
 			}
 		}.collect { watchModule ->
 			_children += WatcherWatcher(
-				ogExtension,
 				watchModule, 
 				watchModule.get<WatchModule>()!!, 
 				media,
-				coroutineScope
-			).apply {
-				coroutineScope.launch(Dispatchers.Default) { 
-					load()
-				}
-			}
+				loader
+			).also { loader.launch(it) }
 		}
 
 		_isLoading.value = false
@@ -3,20 +3,17 @@ package com.mrboomdev.awery.extension.loaders.watch
 import androidx.compose.runtime.getValue
 import androidx.compose.runtime.mutableStateListOf
 import androidx.compose.runtime.mutableStateOf
+import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.core.utils.NothingFoundException
-import com.mrboomdev.awery.extension.loaders.Extensions.get
+import com.mrboomdev.awery.data.database.database
 import com.mrboomdev.awery.extension.sdk.Extension
 import com.mrboomdev.awery.extension.sdk.Media
 import com.mrboomdev.awery.extension.sdk.get
-import com.mrboomdev.awery.extension.sdk.modules.WatchModule
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
 
 class MediaWatcher(
 	val extension: Extension,
 	val media: Media,
-	private val coroutineScope: CoroutineScope
+	private val loader: WatcherLoader
 ): WatcherNode.Variants {
 	private val _children = mutableStateListOf<WatcherNode>()
 	override val children: List<WatcherNode> = _children
@@ -32,7 +29,10 @@ class MediaWatcher(
 		_isLoading.value = true
 		
 		try {
-			extension.get<WatchModule>()!!.watch(media).also {
+			// Fetched once for the whole tree, so that every variant doesn't query it by itself.
+			val progresses = Awery.database.progress.getAll(extension.id, media.id).associateBy { it.variantId }
+			
+			loader.watch(extension, media).also {
 				_children.clear()
 				_error.value = null
 			}.get({ video ->
@@ -45,11 +45,7 @@ class MediaWatcher(
 				}
 				
 				_children += variants.items.map { 
-					VariantWatcher(extension, it, coroutineScope).apply { 
-						coroutineScope.launch(Dispatchers.Default) { 
-							load()
-						}
-					}
+					VariantWatcher(extension, it, progresses, loader).also { loader.launch(it) }
 				}
 			})
 		} catch(t: Throwable) {
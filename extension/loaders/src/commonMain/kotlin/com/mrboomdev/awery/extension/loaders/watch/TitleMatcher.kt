@@ -0,0 +1,68 @@
+package com.mrboomdev.awery.extension.loaders.watch
+
+import com.mrboomdev.awery.extension.sdk.Media
+import java.text.Normalizer
+import kotlin.math.abs
+import kotlin.math.max
+
+/**
+ * Decides how likely it is that a media found in another extension is the one the user is looking for.
+ */
+internal class TitleMatcher(private val original: Media) {
+	private val originalTitles = original.titles().map { bigrams(it) }
+
+	/**
+	 * @return A value from 0 to 1, where 1 means that titles do match exactly
+	 * and the episodes count is the same.
+	 */
+	fun score(candidate: Media): Float {
+		val titleScore = candidate.titles().maxOfOrNull { title ->
+			val candidateBigrams = bigrams(title)
+			originalTitles.maxOf { similarity(it, candidateBigrams) }
+		} ?: 0f
+
+		val episodesScore = run {
+			val a = original.episodes?.takeIf { it > 0 } ?: return@run .5f
+			val b = candidate.episodes?.takeIf { it > 0 } ?: return@run .5f
+			1f - abs(a - b).toFloat() / max(a, b)
+		}
+
+		return titleScore * .85f + episodesScore * .15f
+	}
+
+	companion object {
+		/**
+		 * A score after which there is no point to search for any other titles.
+		 */
+		const val HIGH_CONFIDENCE = .9f
+
+		private val diacritics = "\\p{Mn}+".toRegex()
+		private val separators = "[^\\p{L}\\p{N}]+".toRegex()
+
+		fun normalize(title: String) = Normalizer.normalize(title, Normalizer.Form.NFKD)
+			.replace(diacritics, "")
+			.replace(separators, " ")
+			.trim()
+			.lowercase()
+
+		private fun Media.titles() = (listOf(title) + alternativeTitles)
+			.map { normalize(it) }
+			.filter { it.isNotEmpty() }
+			.distinct()
+
+		private fun bigrams(title: String): Map<String, Int> {
+			if(title.length < 2) return mapOf(title to 1)
+			return title.windowed(2).groupingBy { it }.eachCount()
+		}
+
+		/**
+		 * Sørensen–Dice coefficient of the character pairs, so that word order
+		 * and small differences like a missing "the" don't matter much.
+		 */
+		private fun similarity(a: Map<String, Int>, b: Map<String, Int>): Float {
+			if(a == b) return 1f
+			val common = a.entries.sumOf { (bigram, count) -> minOf(count, b[bigram] ?: 0) }
+			return 2f * common / (a.values.sum() + b.values.sum())
+		}
+	}
+}
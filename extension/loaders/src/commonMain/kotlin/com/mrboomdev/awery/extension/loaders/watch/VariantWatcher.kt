@@ -4,20 +4,19 @@ import androidx.compose.runtime.getValue
 import androidx.compose.runtime.mutableStateListOf
 import androidx.compose.runtime.mutableStateOf
 import com.mrboomdev.awery.core.utils.NothingFoundException
-import com.mrboomdev.awery.extension.loaders.Extensions.get
+import com.mrboomdev.awery.data.database.entity.DBWatchProgress
 import com.mrboomdev.awery.extension.sdk.Extension
 import com.mrboomdev.awery.extension.sdk.WatchVariant
 import com.mrboomdev.awery.extension.sdk.get
-import com.mrboomdev.awery.extension.sdk.modules.WatchModule
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
 
 class VariantWatcher(
 	val extension: Extension,
 	val variant: WatchVariant,
-	private val coroutineScope: CoroutineScope
+	private val progresses: Map<String, DBWatchProgress>,
+	private val loader: WatcherLoader
 ): WatcherNode.Variants {
+	val progress = progresses[variant.id]
+	
 	private val _children = mutableStateListOf<WatcherNode>()
 	override val children: List<WatcherNode> = _children
 	
@@ -32,7 +31,7 @@ class VariantWatcher(
 		_isLoading.value = true
 		
 		try {
-			extension.get<WatchModule>()!!.watch(variant).also {
+			loader.watch(extension, variant).also {
 				_children.clear()
 				_error.value = null
 			}.get({ video ->
@@ -45,11 +44,7 @@ class VariantWatcher(
 				}
 
 				_children += variants.items.map {
-					VariantWatcher(extension, it, coroutineScope).apply { 
-						coroutineScope.launch(Dispatchers.Default) { 
-							load()
-						}
-					}
+					VariantWatcher(extension, it, progresses, loader).also { loader.launch(it) }
 				}
 			})
 		} catch(t: Throwable) {
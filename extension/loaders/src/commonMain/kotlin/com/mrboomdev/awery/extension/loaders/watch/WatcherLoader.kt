@@ -0,0 +1,187 @@
+package com.mrboomdev.awery.extension.loaders.watch
+
+import com.mrboomdev.awery.extension.loaders.Extensions.get
+import com.mrboomdev.awery.extension.sdk.BooleanPreference
+import com.mrboomdev.awery.extension.sdk.Either
+import com.mrboomdev.awery.extension.sdk.Extension
+import com.mrboomdev.awery.extension.sdk.IntPreference
+import com.mrboomdev.awery.extension.sdk.LabelPreference
+import com.mrboomdev.awery.extension.sdk.LongPreference
+import com.mrboomdev.awery.extension.sdk.Media
+import com.mrboomdev.awery.extension.sdk.Preference
+import com.mrboomdev.awery.extension.sdk.PreferenceGroup
+import com.mrboomdev.awery.extension.sdk.Results
+import com.mrboomdev.awery.extension.sdk.SelectPreference
+import com.mrboomdev.awery.extension.sdk.StringPreference
+import com.mrboomdev.awery.extension.sdk.TriStatePreference
+import com.mrboomdev.awery.extension.sdk.Video
+import com.mrboomdev.awery.extension.sdk.WatchVariant
+import com.mrboomdev.awery.extension.sdk.modules.CatalogModule
+import com.mrboomdev.awery.extension.sdk.modules.WatchModule
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.launch
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Loads all nodes of a single watcher tree.
+ *
+ * No more than [MAX_PARALLEL_LOADS] requests of the whole tree run at once, and requests
+ * of the origin extension go first in the queue, because that's what the user most likely wants to watch.
+ * Identical requests made by different nodes while the first one is still running share its result.
+ */
+class WatcherLoader(
+	val ogExtension: String,
+	private val coroutineScope: CoroutineScope
+) {
+	private val lock = Any()
+	private val priorityWaiters = ArrayDeque<CompletableDeferred<Unit>>()
+	private val waiters = ArrayDeque<CompletableDeferred<Unit>>()
+	private var running = 0
+
+	private val inFlight = ConcurrentHashMap<Any, Deferred<*>>()
+	private val defaultFilters = ConcurrentHashMap<String, Deferred<List<Preference<*>>>>()
+
+	/**
+	 * Loads the [node] in background.
+	 */
+	fun launch(node: WatcherNode.Variants) {
+		coroutineScope.launch(Dispatchers.Default) {
+			node.load()
+		}
+	}
+
+	suspend fun watch(
+		extension: Extension,
+		media: Media
+	): Either<Video, Results<WatchVariant>> = coalesce(Triple(extension.id, media.id, null)) {
+		withPermit(extension) { extension.get<WatchModule>()!!.watch(media) }
+	}
+
+	suspend fun watch(
+		extension: Extension,
+		variant: WatchVariant
+	): Either<Video, Results<WatchVariant>> = coalesce(Triple(extension.id, null, variant.id)) {
+		withPermit(extension) { extension.get<WatchModule>()!!.watch(variant) }
+	}
+
+	suspend fun search(
+		extension: Extension,
+		query: String
+	): Results<Media> = coalesce(extension.id to query) {
+		val catalogModule = extension.get<CatalogModule>()!!
+
+		val filters = defaultFilters.computeIfAbsent(extension.id) {
+			coroutineScope.async(Dispatchers.Default, CoroutineStart.LAZY) {
+				withPermit(extension) { catalogModule.getDefaultFilters() }
+			}
+		}.let {
+			try {
+				it.await()
+			} catch(t: Throwable) {
+				// Don't remember failures, so that the next search would try again.
+				defaultFilters.remove(extension.id, it)
+				throw t
+			}
+		}.map { it.copy() }
+
+		filters.first { it.role == Preference.Role.QUERY }.let {
+			@Suppress("UNCHECKED_CAST")
+			it as Preference<String>
+		}.value = query
+
+		withPermit(extension) { catalogModule.search(filters) }
+	}
+
+	/**
+	 * Runs the [block] or waits for the same one which is already running.
+	 * Results are only shared while the request is in flight, so that retries do actually retry.
+	 */
+	@Suppress("UNCHECKED_CAST")
+	private suspend fun <T> coalesce(key: Any, block: suspend () -> T): T {
+		val deferred = inFlight.computeIfAbsent(key) {
+			coroutineScope.async(Dispatchers.Default, CoroutineStart.LAZY) {
+				try {
+					block()
+				} finally {
+					inFlight.remove(key)
+				}
+			}
+		} as Deferred<T>
+
+		return deferred.await()
+	}
+
+	private suspend fun <T> withPermit(extension: Extension, block: suspend () -> T): T {
+		acquire(isPriority = extension.id == ogExtension)
+
+		try {
+			return block()
+		} finally {
+			release()
+		}
+	}
+
+	private suspend fun acquire(isPriority: Boolean) {
+		val waiter = synchronized(lock) {
+			if(running < MAX_PARALLEL_LOADS) {
+				running++
+				return
+			}
+
+			CompletableDeferred<Unit>().also {
+				(if(isPriority) priorityWaiters else waiters).addLast(it)
+			}
+		}
+
+		try {
+			waiter.await()
+		} catch(t: Throwable) {
+			synchronized(lock) {
+				if(!priorityWaiters.remove(waiter) && !waiters.remove(waiter)) {
+					// The permit was handed to us while we were giving up.
+					running--
+					promote()
+				}
+			}
+
+			throw t
+		}
+	}
+
+	private fun release() {
+		synchronized(lock) {
+			running--
+			promote()
+		}
+	}
+
+	private fun promote() {
+		while(running < MAX_PARALLEL_LOADS) {
+			val waiter = priorityWaiters.removeFirstOrNull() ?: waiters.removeFirstOrNull() ?: return
+			running++
+			waiter.complete(Unit)
+		}
+	}
+
+	private fun Preference<*>.copy(): Preference<*> = when(this) {
+		// Don't group checks so that we can access every individual
+		// copy() method by using smart-cast. Else it results into infinite recursion.
+		is StringPreference -> copy()
+		is IntPreference -> copy()
+		is BooleanPreference -> copy()
+		is LongPreference -> copy()
+		is TriStatePreference -> copy()
+		is SelectPreference -> copy()
+		is LabelPreference -> this
+		is PreferenceGroup -> copy(items = items.map { it.copy() })
+	}
+
+	companion object {
+		const val MAX_PARALLEL_LOADS = 8
+	}
+}
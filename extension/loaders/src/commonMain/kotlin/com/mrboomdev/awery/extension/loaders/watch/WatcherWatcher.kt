@@ -4,27 +4,21 @@ import androidx.compose.runtime.getValue
 import androidx.compose.runtime.mutableStateListOf
 import androidx.compose.runtime.mutableStateOf
 import com.mrboomdev.awery.core.utils.NothingFoundException
-import com.mrboomdev.awery.extension.loaders.Extensions.get
 import com.mrboomdev.awery.extension.sdk.Extension
 import com.mrboomdev.awery.extension.sdk.Media
-import com.mrboomdev.awery.extension.sdk.Preference
-import com.mrboomdev.awery.extension.sdk.modules.CatalogModule
 import com.mrboomdev.awery.extension.sdk.modules.WatchModule
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.IO
-import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.flow.channelFlow
-import kotlinx.coroutines.flow.onEach
-import kotlinx.coroutines.flow.onStart
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.atomic.AtomicReference
 
 class WatcherWatcher(
-	private val ogExtension: String,
 	val extension: Extension,
 	val module: WatchModule,
 	val media: Media,
-	private val coroutineScope: CoroutineScope
+	private val loader: WatcherLoader
 ): WatcherNode.Variants {
 	private val _children = mutableStateListOf<WatcherNode>()
 	override val children: List<WatcherNode> = _children
@@ -35,60 +29,72 @@ class WatcherWatcher(
 	private val _error = mutableStateOf<Throwable?>(null)
 	override val error by _error
 
-	override suspend fun load() {
+	/**
+	 * Retries may start while the previous load is still running,
+	 * so children are only changed by one load at a time.
+	 */
+	private val loadLock = Mutex()
+
+	override suspend fun load() = loadLock.withLock {
 		_error.value = null
 		_isLoading.value = true
 		
-		extension.get<CatalogModule>()!!.also { catalogModule ->
-			try {
-				if(extension.id == ogExtension) {
-					_children.clear()
-					
-					_children += MediaWatcher(extension, media, coroutineScope).apply {
-						coroutineScope.launch(Dispatchers.Default) {
-							load()
-						}
-					}
-					
-					return@also
-				}
+		try {
+			if(extension.id == loader.ogExtension) {
+				_children.clear()
+				_children += MediaWatcher(extension, media, loader).also { loader.launch(it) }
+				_isLoading.value = false
+				return@withLock
+			}
 
-				channelFlow { 
-					for(title in listOf(media.title, *media.alternativeTitles.toTypedArray())) {
-						launch(Dispatchers.IO) {
-							send(catalogModule.search(
-								catalogModule.getDefaultFilters().apply {
-									first { it.role == Preference.Role.QUERY }.let {
-										@Suppress("UNCHECKED_CAST")
-										it as Preference<String>
-									}.value = title
-								}
-							))
+			_children.clear()
+
+			val matcher = TitleMatcher(media)
+			val scores = hashMapOf<String, Float>()
+			val lastError = AtomicReference<Throwable?>(null)
+
+			// Searching for the same title written differently is pointless.
+			val queries = listOf(media.title, *media.alternativeTitles.toTypedArray())
+				.distinctBy { TitleMatcher.normalize(it) }
+
+			// The main title is the most likely one to be found, so others
+			// are only searched for if it didn't give anything convincing.
+			for(batch in listOf(queries.take(1)) + queries.drop(1).chunked(ALTERNATIVE_TITLES_BATCH)) {
+				channelFlow {
+					for(title in batch) {
+						launch {
+							send(try {
+								loader.search(extension, title).items
+							} catch(e: CancellationException) {
+								throw e
+							} catch(t: Throwable) {
+								lastError.set(t)
+								emptyList()
+							})
 						}
 					}
-				}.onStart {
-					_error.value = null
-					_children.clear()
-				}.onEach {
-					if(it.items.isEmpty()) {
-						throw NothingFoundException("No media was found!")
-					}
-				}.catch { 
-					_error.value = it
-				}.collect { results ->
-					_children += results.items.map { media ->
-						MediaWatcher(extension, media, coroutineScope).apply {
-							coroutineScope.launch(Dispatchers.Default) {
-								load()
-							}
-						}
-					}.filterNot { a ->
-						_children.any { b -> a.id == b.id }
+				}.collect { found ->
+					for(media in found) {
+						if(media.id in scores) continue
+						val score = matcher.score(media)
+						scores[media.id] = score
+
+						// Keep the best matches on top.
+						val index = _children.indexOfFirst { scores.getValue(it.id) < score }
+							.takeUnless { it == -1 } ?: _children.size
+
+						_children.add(index, MediaWatcher(extension, media, loader).also { loader.launch(it) })
 					}
 				}
-			} catch(t: Throwable) {
-				_error.value = t
+
+				if(scores.values.any { it >= TitleMatcher.HIGH_CONFIDENCE }) break
 			}
+
+			if(_children.isEmpty()) {
+				_error.value = lastError.get() ?: NothingFoundException("No media was found!")
+			}
+		} catch(t: Throwable) {
+			_error.value = t
 		}
 		
 		_isLoading.value = false
@@ -99,4 +105,8 @@ class WatcherWatcher(
 	
 	override val id: String
 		get() = extension.id
+
+	private companion object {
+		const val ALTERNATIVE_TITLES_BATCH = 3
+	}
 }
\ No newline at end of file
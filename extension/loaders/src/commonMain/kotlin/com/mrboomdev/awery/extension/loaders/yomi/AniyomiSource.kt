@@ -1,7 +1,5 @@
 package com.mrboomdev.awery.extension.loaders.yomi
 
-import com.mrboomdev.awery.core.utils.deserialize
-import com.mrboomdev.awery.core.utils.serialize
 import com.mrboomdev.awery.extension.sdk.BooleanPreference
 import com.mrboomdev.awery.extension.sdk.Either
 import com.mrboomdev.awery.extension.sdk.Extension
@@ -23,11 +21,7 @@ import com.mrboomdev.awery.extension.sdk.modules.WatchModule
 import eu.kanade.tachiyomi.animesource.AnimeCatalogueSource
 import eu.kanade.tachiyomi.animesource.AnimeSource
 import eu.kanade.tachiyomi.animesource.model.AnimeFilter
-import eu.kanade.tachiyomi.animesource.model.SEpisode
 import eu.kanade.tachiyomi.animesource.online.AnimeHttpSource
-import kotlinx.serialization.json.Json
-import kotlin.io.encoding.Base64
-import kotlin.io.encoding.ExperimentalEncodingApi
 
 class AniyomiSource(
     private val extension: Extension,
@@ -57,7 +51,6 @@ class AniyomiSource(
     override val loadException: ExtensionLoadException?
         get() = null
 
-    @OptIn(ExperimentalEncodingApi::class)
     override fun createModules() = buildList {
         if(source is AnimeCatalogueSource) {
             add(object : CatalogModule {
@@ -119,13 +112,10 @@ class AniyomiSource(
         }
 
         add(object : WatchModule {
-            val TYPE_EPISODE = "__EPISODE__"
-            val TYPE_VIDEO = "__VIDEO__"
-
             override suspend fun watch(media: Media, page: Int): Either<Video, Results<WatchVariant>> {
                 return source.getEpisodeList(media.toSAnime()).map { episode ->
                     WatchVariant(
-                        id = TYPE_EPISODE + Base64.encode(episode.serialize()),
+                        id = WatchVariantCodec.encodeEpisode(episode),
                         releaseDate = episode.date_upload,
                         number = episode.episode_number,
                         title = episode.name,
@@ -140,9 +130,8 @@ class AniyomiSource(
                 page: Int
             ): Either<Video, Results<WatchVariant>> {
                 return when {
-                    watchVariant.id.startsWith(TYPE_EPISODE) -> {
-                        val encodedVideo = watchVariant.id.substringAfter(TYPE_EPISODE)
-                        val episode = Base64.decode(encodedVideo).deserialize() as SEpisode
+                    WatchVariantCodec.isEpisode(watchVariant.id) -> {
+                        val episode = WatchVariantCodec.decodeEpisode(watchVariant)
 
                         Either.second(Results(source.getVideoList(episode).map { animeVideo ->
                             val aweryVideo = Video(
@@ -160,15 +149,15 @@ class AniyomiSource(
                             )
                             
                             WatchVariant(
-                                id = TYPE_VIDEO + Json.encodeToString(aweryVideo),
+                                id = WatchVariantCodec.encodeVideo(aweryVideo),
                                 title = animeVideo.videoTitle,
                                 type = WatchVariant.Type.QUALITY
                             )
                         }, false))
                     }
 
-                    watchVariant.id.startsWith(TYPE_VIDEO) -> {
-                        Either.first(Json.decodeFromString(watchVariant.id.substringAfter(TYPE_VIDEO)))
+                    WatchVariantCodec.isVideo(watchVariant.id) -> {
+                        Either.first(WatchVariantCodec.decodeVideo(watchVariant.id))
                     }
 
                     else -> throw IllegalArgumentException("Unknown watch variant type! ${watchVariant.id}")
@@ -0,0 +1,206 @@
+package com.mrboomdev.awery.extension.loaders.yomi
+
+import com.mrboomdev.awery.core.Awery
+import com.mrboomdev.awery.core.utils.deserialize
+import com.mrboomdev.awery.core.utils.logger
+import com.mrboomdev.awery.data.database.database
+import com.mrboomdev.awery.data.settings.AwerySettings
+import com.mrboomdev.awery.extension.sdk.Video
+import com.mrboomdev.awery.extension.sdk.WatchVariant
+import eu.kanade.tachiyomi.animesource.model.SEpisode
+import kotlinx.serialization.json.Json
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import kotlin.io.encoding.Base64
+
+private val logger by logger()
+
+/**
+ * Encodes episodes and videos of Aniyomi sources into [com.mrboomdev.awery.extension.sdk.WatchVariant] ids.
+ *
+ * Ids are used as keys of the watch progress and of lists in the ui, so episode ids only contain fields
+ * identifying the episode, because a renamed episode must still have the same progress.
+ * Everything else is taken from the [WatchVariant] itself. Ids are a prefix with the format version
+ * followed by fields written one after another without any names.
+ * Ids of older versions can still be decoded, so that links to them don't break.
+ */
+internal object WatchVariantCodec {
+    private const val EPISODE_V1 = "e1"
+    private const val VIDEO_V1 = "v1"
+    private const val LEGACY_EPISODE = "__EPISODE__"
+    private const val LEGACY_VIDEO = "__VIDEO__"
+
+    private val base64 = Base64.UrlSafe.withPadding(Base64.PaddingOption.ABSENT)
+
+    fun isEpisode(id: String) = id.startsWith(EPISODE_V1) || id.startsWith(LEGACY_EPISODE)
+    fun isVideo(id: String) = id.startsWith(VIDEO_V1) || id.startsWith(LEGACY_VIDEO)
+
+    /**
+     * Sources find episodes by their url, and nothing else can be relied on to stay the same.
+     */
+    fun encodeEpisode(episode: SEpisode) = EPISODE_V1 + encode {
+        writeString(episode.url)
+    }
+
+    fun decodeEpisode(variant: WatchVariant): SEpisode = when {
+        variant.id.startsWith(EPISODE_V1) -> decode(variant.id.substring(EPISODE_V1.length)) {
+            SEpisode.create().apply {
+                url = readString()
+                name = variant.title
+                variant.releaseDate?.also { date_upload = it }
+                variant.number?.also { episode_number = it }
+            }
+        }
+
+        else -> decodeLegacyEpisode(variant.id)
+    }
+
+    private fun decodeLegacyEpisode(id: String): SEpisode {
+        require(id.startsWith(LEGACY_EPISODE)) { "Not an episode! $id" }
+        return Base64.decode(id.substring(LEGACY_EPISODE.length)).deserialize() as SEpisode
+    }
+
+    /**
+     * Unlike episodes, videos can't be requested from the source again, and most hosts
+     * refuse to play them without headers, so everything needed for playback is encoded.
+     */
+    fun encodeVideo(video: Video) = VIDEO_V1 + encode {
+        writeString(video.url)
+        writeNullableString(video.title)
+        writeTracks(video.videoTracks)
+        writeTracks(video.subtitleTracks)
+        writeTracks(video.audioTracks)
+        writeVarInt(video.headers.size)
+
+        for((key, value) in video.headers) {
+            writeString(key)
+            writeString(value)
+        }
+    }
+
+    fun decodeVideo(id: String): Video = when {
+        id.startsWith(VIDEO_V1) -> decode(id.substring(VIDEO_V1.length)) {
+            Video(
+                url = readString(),
+                title = readNullableString(),
+                videoTracks = readTracks(),
+                subtitleTracks = readTracks(),
+                audioTracks = readTracks(),
+                headers = buildMap {
+                    repeat(readVarInt()) {
+                        put(readString(), readString())
+                    }
+                }
+            )
+        }
+
+        id.startsWith(LEGACY_VIDEO) -> Json.decodeFromString(id.substring(LEGACY_VIDEO.length))
+        else -> throw IllegalArgumentException("Not a video! $id")
+    }
+
+    /**
+     * Re-encodes watch progress saved with ids of older versions. Does nothing once it has completed,
+     * because new ids are never written in the old format. Rows which can't be decoded anymore are left as is.
+     */
+    suspend fun migrateProgress() {
+        if(AwerySettings.didMigrateWatchVariantIds.value) return
+
+        val dao = Awery.database.progress
+        var migrated = 0
+
+        for(prefix in listOf(LEGACY_EPISODE, LEGACY_VIDEO)) {
+            for(progress in dao.getAllWithVariantPrefix(prefix)) {
+                val newId = try {
+                    when(prefix) {
+                        LEGACY_EPISODE -> encodeEpisode(decodeLegacyEpisode(progress.variantId))
+                        else -> encodeVideo(decodeVideo(progress.variantId))
+                    }
+                } catch(t: Throwable) {
+                    logger.w("Failed to migrate a watch variant id of ${progress.extensionId}", t)
+                    continue
+                }
+
+                dao.replace(progress, progress.copy(variantId = newId))
+                migrated++
+            }
+        }
+
+        if(migrated > 0) {
+            logger.i("Migrated $migrated watch variant ids to the compact format")
+        }
+
+        AwerySettings.didMigrateWatchVariantIds.set(true)
+    }
+
+    private inline fun encode(block: DataOutputStream.() -> Unit): String {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use(block)
+        return base64.encode(bytes.toByteArray())
+    }
+
+    private inline fun <T> decode(data: String, block: DataInputStream.() -> T): T {
+        return DataInputStream(ByteArrayInputStream(base64.decode(data))).use(block)
+    }
+
+    private fun DataOutputStream.writeVarInt(value: Int) {
+        var remaining = value
+
+        while(remaining and 0x7F.inv() != 0) {
+            writeByte((remaining and 0x7F) or 0x80)
+            remaining = remaining ushr 7
+        }
+
+        writeByte(remaining)
+    }
+
+    private fun DataInputStream.readVarInt(): Int {
+        var result = 0
+        var shift = 0
+
+        while(true) {
+            val byte = readUnsignedByte()
+            result = result or ((byte and 0x7F) shl shift)
+            if(byte and 0x80 == 0) return result
+            shift += 7
+        }
+    }
+
+    private fun DataOutputStream.writeString(value: String) {
+        val bytes = value.encodeToByteArray()
+        writeVarInt(bytes.size)
+        write(bytes)
+    }
+
+    private fun DataInputStream.readString(): String {
+        return ByteArray(readVarInt()).also { readFully(it) }.decodeToString()
+    }
+
+    private fun DataOutputStream.writeNullableString(value: String?) {
+        writeBoolean(value != null)
+        if(value != null) writeString(value)
+    }
+
+    private fun DataInputStream.readNullableString(): String? {
+        return if(readBoolean()) readString() else null
+    }
+
+    private fun DataOutputStream.writeTracks(tracks: List<Video.Track>) {
+        writeVarInt(tracks.size)
+
+        for(track in tracks) {
+            writeString(track.url)
+            writeNullableString(track.title)
+            writeNullableString(track.locale)
+        }
+    }
+
+    private fun DataInputStream.readTracks() = List(readVarInt()) {
+        Video.Track(
+            url = readString(),
+            title = readNullableString(),
+            locale = readNullableString()
+        )
+    }
+}
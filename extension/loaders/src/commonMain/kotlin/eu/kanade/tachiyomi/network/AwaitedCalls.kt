@@ -0,0 +1,51 @@
+package eu.kanade.tachiyomi.network
+
+import okhttp3.Call
+import java.io.IOException
+import java.util.WeakHashMap
+import kotlin.time.Duration
+
+/**
+ * Calls which are being awaited from a coroutine. Interceptors shouldn't block
+ * the dispatcher thread for these and may throw [RetryLaterException] instead.
+ */
+internal object AwaitedCalls {
+    private val calls = WeakHashMap<Call, MutableSet<Any>>()
+
+    /**
+     * @param prepaid Permits which were already taken for this call by a previous attempt.
+     */
+    fun add(call: Call, prepaid: Set<Any>) = synchronized(calls) {
+        calls[call] = prepaid.toMutableSet()
+    }
+
+    fun remove(call: Call) = synchronized(calls) {
+        calls.remove(call)
+    }
+
+    operator fun contains(call: Call) = synchronized(calls) {
+        call in calls
+    }
+
+    /**
+     * @return True if the [permit] was taken for this call before, so it must not be taken again.
+     */
+    fun consumePrepaid(call: Call, permit: Any) = synchronized(calls) {
+        calls[call]?.remove(permit) == true
+    }
+}
+
+/**
+ * Thrown by interceptors to ask an awaited call to suspend for the [delay] and try again.
+ * The [permit] is already reserved for the next attempt.
+ */
+internal class RetryLaterException(
+    val delay: Duration,
+    val permit: Any,
+    private val onCancel: () -> Unit
+) : IOException("Retry after $delay") {
+    /**
+     * Gives the reserved [permit] back if the call won't be retried.
+     */
+    fun cancel() = onCancel()
+}
@@ -0,0 +1,82 @@
+package eu.kanade.tachiyomi.network
+
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Sources often evaluate the same unpacker with only the packed data being different,
+ * so compiled scripts are remembered by their content and only executed next time.
+ * Least recently used scripts are evicted once their total size exceeds [MAX_SIZE].
+ */
+object JavaScriptBytecodeCache {
+    const val MAX_SIZE = 8L * 1024 * 1024
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private var size = 0L
+    private val entries = LinkedHashMap<String, ByteArray>(16, .75f, true)
+
+    data class Stats(
+        val hits: Long,
+        val misses: Long,
+        val scripts: Int,
+        val size: Long
+    ) {
+        val hitRate get() = if(hits + misses == 0L) 0f else hits.toFloat() / (hits + misses)
+    }
+
+    fun getStats() = synchronized(entries) {
+        Stats(
+            hits = hits.get(),
+            misses = misses.get(),
+            scripts = entries.size,
+            size = size
+        )
+    }
+
+    fun resetStats() {
+        hits.set(0)
+        misses.set(0)
+    }
+
+    /**
+     * @param compile Called if the script wasn't compiled yet.
+     */
+    internal fun getOrCompile(script: String, compile: (String) -> ByteArray): ByteArray {
+        val key = keyOf(script)
+
+        get(key)?.also {
+            hits.incrementAndGet()
+            return it
+        }
+
+        misses.incrementAndGet()
+        return compile(script).also { put(key, it) }
+    }
+
+    private fun get(key: String) = synchronized(entries) {
+        entries[key]
+    }
+
+    private fun put(key: String, bytecode: ByteArray) {
+        if(bytecode.size > MAX_SIZE) return
+
+        synchronized(entries) {
+            entries.put(key, bytecode)?.also { size -= it.size }
+            size += bytecode.size
+
+            val iterator = entries.values.iterator()
+
+            while(size > MAX_SIZE && iterator.hasNext()) {
+                size -= iterator.next().size
+                iterator.remove()
+            }
+        }
+    }
+
+    private fun keyOf(script: String): String {
+        return MessageDigest.getInstance("SHA-256")
+            .digest(script.encodeToByteArray())
+            .joinToString("") { "%02x".format(it) }
+    }
+}
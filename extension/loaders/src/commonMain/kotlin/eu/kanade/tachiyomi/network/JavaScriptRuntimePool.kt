@@ -0,0 +1,185 @@
+package eu.kanade.tachiyomi.network
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.runInterruptible
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import kotlin.concurrent.Volatile
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.seconds
+
+/**
+ * Keeps JavaScript runtimes warm, so that sources evaluating a script
+ * for every episode don't pay for the engine startup each time.
+ *
+ * Engines aren't thread-safe, so every runtime lives on its own thread. After each script globals left by it
+ * are cleared by [reset], so that they can't leak into an another one. A runtime is only replaced by a fresh one
+ * if a script has failed, couldn't be cleaned up after, or once it has run [MAX_USES] scripts,
+ * because some state, like modified prototypes of built-ins, can't be reset.
+ *
+ * @param timeout Scripts running for longer are abandoned together with their thread.
+ */
+internal class JavaScriptRuntimePool<R>(
+    private val name: String,
+    size: Int = DEFAULT_SIZE,
+    private val timeout: Duration = DEFAULT_TIMEOUT,
+    private val create: () -> R,
+    private val reset: (R) -> Unit,
+    private val close: (R) -> Unit
+) {
+    private val idle = Channel<Worker>(Channel.UNLIMITED)
+
+    init {
+        repeat(size) { idle.trySend(Worker(it)) }
+    }
+
+    private inner class Worker(val index: Int) {
+        val executor: ExecutorService = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "$name-$index").apply { isDaemon = true }
+        }
+
+        @Volatile
+        var runtime: Future<R> = executor.submit(Callable(create))
+
+        /**
+         * How many scripts have been run by the current runtime.
+         * Only changed by the [executor] thread, or while nothing is submitted to it.
+         */
+        @Volatile
+        var uses = 0
+
+        fun <T> submit(block: (R) -> T): Future<T> {
+            val runtime = runtime
+
+            return executor.submit(Callable {
+                val instance = runtime.get()
+                val result = block(instance)
+
+                try {
+                    reset(instance)
+                    uses++
+                } catch(_: Throwable) {
+                    uses = MAX_USES
+                }
+
+                result
+            })
+        }
+
+        /**
+         * Must be called before anything else is submitted to the [executor],
+         * so that the next script would run in the new runtime.
+         */
+        fun recycle() {
+            val used = runtime
+            uses = 0
+
+            runtime = executor.submit(Callable {
+                runCatching { close(used.get()) }
+                create()
+            })
+        }
+    }
+
+    suspend fun <T> use(block: (R) -> T): T {
+        val worker = idle.receive()
+
+        try {
+            while(true) {
+                val isFresh = worker.uses == 0
+                val future = worker.submit(block)
+
+                try {
+                    return runInterruptible(Dispatchers.IO) {
+                        future.get(timeout.inWholeMilliseconds, TimeUnit.MILLISECONDS)
+                    }.also {
+                        if(worker.uses >= MAX_USES) {
+                            worker.recycle()
+                        }
+                    }
+                } catch(e: ExecutionException) {
+                    worker.recycle()
+
+                    // Top-level let and const declarations can't be removed by the reset,
+                    // so they may clash with ones of the next script. Retry once in a clean runtime.
+                    if(!isFresh) continue
+                    throw generateSequence<Throwable>(e) { it.cause }.first { it !is ExecutionException }
+                } catch(e: TimeoutException) {
+                    // There is no way to stop a native engine in the middle of a script, so just forget about it.
+                    future.cancel(true)
+                    worker.executor.shutdownNow()
+                    throw TimeoutException("JavaScript evaluation took longer than $timeout!")
+                } catch(e: CancellationException) {
+                    // The script may still be running, and there's no one to clean up after it.
+                    future.cancel(false)
+                    worker.recycle()
+                    throw e
+                }
+            }
+        } finally {
+            idle.trySend(if(worker.executor.isShutdown) Worker(worker.index) else worker)
+        }
+    }
+
+    /**
+     * Closes all idle runtimes and stops their threads. The pool can't be used afterwards.
+     * Runtimes which are still running a script are left to finish on their own.
+     */
+    fun shutdown() {
+        idle.close()
+
+        while(true) {
+            val worker = idle.tryReceive().getOrNull() ?: break
+            val runtime = worker.runtime
+
+            worker.executor.submit { runCatching { close(runtime.get()) } }
+            worker.executor.shutdown()
+        }
+    }
+
+    companion object {
+        /**
+         * One runtime per core, but even weak devices may have a few scripts waiting for the network.
+         */
+        val DEFAULT_SIZE = Runtime.getRuntime().availableProcessors().coerceIn(2, 8)
+        val DEFAULT_TIMEOUT = 30.seconds
+        const val MEMORY_LIMIT = 64 * 1024 * 1024
+        const val MAX_USES = 100
+
+        /**
+         * Must be evaluated right after a runtime is created,
+         * so that the [RESET_SCRIPT] would know which globals are built-in.
+         */
+        const val SNAPSHOT_SCRIPT = """
+            Object.defineProperty(globalThis, "__builtInGlobals", {
+                value: Object.getOwnPropertyNames(globalThis),
+                enumerable: false
+            });
+        """
+
+        /**
+         * Removes all globals defined by scripts. Ones declared by "var" can't be deleted, so they're just cleared.
+         */
+        const val RESET_SCRIPT = """
+            (function() {
+                var builtIn = globalThis.__builtInGlobals;
+
+                Object.getOwnPropertyNames(globalThis).forEach(function(name) {
+                    if(name === "__builtInGlobals" || builtIn.indexOf(name) !== -1) return;
+
+                    try {
+                        if(!delete globalThis[name]) globalThis[name] = undefined;
+                    } catch(e) {}
+                });
+            })();
+        """
+    }
+}
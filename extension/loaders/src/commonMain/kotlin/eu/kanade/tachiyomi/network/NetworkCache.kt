@@ -0,0 +1,192 @@
+package eu.kanade.tachiyomi.network
+
+import com.mrboomdev.awery.core.utils.toJavaFile
+import com.mrboomdev.awery.data.settings.AwerySettings
+import io.github.vinceglb.filekit.FileKit
+import io.github.vinceglb.filekit.cacheDir
+import io.github.vinceglb.filekit.resolve
+import kotlinx.coroutines.DelicateCoroutinesApi
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import okhttp3.Cache
+import okhttp3.HttpUrl.Companion.toHttpUrlOrNull
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.asResponseBody
+import okio.Buffer
+import okio.ForwardingSource
+import okio.buffer
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.time.Duration.Companion.seconds
+
+private const val MiB = 1024L * 1024
+
+/**
+ * Disk cache shared by all extensions using [NetworkHelper.client].
+ * Besides the total size limit, no single host may take more than
+ * [AwerySettings.networkCacheHostQuota] so that one chatty source
+ * doesn't evict pages of all the other ones.
+ *
+ * Sizes of entries are measured while their responses are being read, because OkHttp doesn't expose them.
+ * Entries which weren't used since the app has started aren't counted against the quota,
+ * but they're also the least recently used ones, so they're the first to be evicted anyway.
+ */
+object NetworkCache {
+    private val entrySizes = ConcurrentHashMap<String, Long>()
+    private val trimScheduled = AtomicBoolean(false)
+    private val hits = AtomicLong()
+    private val staleHits = AtomicLong()
+    private val revalidations = AtomicLong()
+    private val misses = AtomicLong()
+
+    val cache by lazy {
+        Cache(
+            directory = FileKit.cacheDir.resolve("network_cache").toJavaFile(),
+            maxSize = AwerySettings.networkCacheSize.value * MiB
+        )
+    }
+
+    data class Stats(
+        val hits: Long,
+        val staleHits: Long,
+        val revalidations: Long,
+        val misses: Long,
+        val size: Long,
+        val maxSize: Long
+    ) {
+        val requests get() = hits + staleHits + revalidations + misses
+    }
+
+    /**
+     * Reads the disk, so don't call it from the main thread.
+     */
+    fun getStats() = Stats(
+        hits = hits.get(),
+        staleHits = staleHits.get(),
+        revalidations = revalidations.get(),
+        misses = misses.get(),
+        size = cache.size(),
+        maxSize = cache.maxSize()
+    )
+
+    fun resetStats() {
+        hits.set(0)
+        staleHits.set(0)
+        revalidations.set(0)
+        misses.set(0)
+    }
+
+    /**
+     * Counts where the response came from. Responses which
+     * were not read from nor written to the cache are ignored.
+     *
+     * @return The same response, but with a body which measures
+     * its size once it has been read completely.
+     */
+    internal fun record(response: Response): Response {
+        val cacheResponse = response.cacheResponse
+        val networkResponse = response.networkResponse
+
+        when {
+            cacheResponse != null && networkResponse == null -> {
+                if(response.headers("Warning").any { it.startsWith("110") }) {
+                    staleHits.incrementAndGet()
+                } else hits.incrementAndGet()
+            }
+
+            cacheResponse != null -> {
+                revalidations.incrementAndGet()
+                scheduleTrim()
+            }
+
+            networkResponse != null && response.request.method == "GET" -> {
+                misses.incrementAndGet()
+                scheduleTrim()
+            }
+
+            else -> return response
+        }
+
+        return response.measured()
+    }
+
+    /**
+     * Bodies of cached responses are stored as they were received, which may be compressed,
+     * so the measured size may be bigger than the one on the disk.
+     */
+    private fun Response.measured(): Response {
+        val url = request.url.toString()
+        val headersSize = headers.byteCount()
+        val body = body
+
+        val source = object : ForwardingSource(body.source()) {
+            private var read = 0L
+
+            override fun read(sink: Buffer, byteCount: Long): Long {
+                val result = super.read(sink, byteCount)
+
+                if(result == -1L) {
+                    entrySizes[url] = headersSize + read
+                } else read += result
+
+                return result
+            }
+        }
+
+        return newBuilder()
+            .body(source.buffer().asResponseBody(body.contentType(), body.contentLength()))
+            .build()
+    }
+
+    /**
+     * Writes are coalesced, so that a burst of requests
+     * results in a single pass over the cache index.
+     */
+    @OptIn(DelicateCoroutinesApi::class)
+    private fun scheduleTrim() {
+        if(!trimScheduled.compareAndSet(false, true)) return
+
+        GlobalScope.launch(Dispatchers.IO) {
+            delay(30.seconds)
+            trimScheduled.set(false)
+            runCatching { trimHosts() }
+        }
+    }
+
+    private fun trimHosts() {
+        val quota = AwerySettings.networkCacheHostQuota.value * MiB
+        val hostSizes = hashMapOf<String, Long>()
+
+        val urls = mutableSetOf<String>()
+
+        cache.urls().forEach { url ->
+            val host = url.toHttpUrlOrNull()?.host ?: return@forEach
+            hostSizes[host] = (hostSizes[host] ?: 0) + (entrySizes[url] ?: 0)
+            urls += url
+        }
+
+        // Forget about entries which have been evicted by the cache itself.
+        entrySizes.keys.retainAll(urls)
+
+        if(hostSizes.values.none { it > quota }) {
+            return
+        }
+
+        // Urls are iterated from the least recently used one,
+        // so the oldest pages of a host are the first to go.
+        val iterator = cache.urls()
+
+        while(iterator.hasNext()) {
+            val url = iterator.next()
+            val host = url.toHttpUrlOrNull()?.host ?: continue
+            val hostSize = hostSizes[host]?.takeIf { it > quota } ?: continue
+            val entrySize = entrySizes.remove(url) ?: 0
+
+            iterator.remove()
+            hostSizes[host] = hostSize - entrySize
+        }
+    }
+}
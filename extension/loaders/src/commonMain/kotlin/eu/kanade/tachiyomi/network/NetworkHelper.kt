@@ -2,20 +2,18 @@ package eu.kanade.tachiyomi.network
 
 import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.core.utils.PlatformSdk
-import com.mrboomdev.awery.core.utils.toJavaFile
+import eu.kanade.tachiyomi.network.interceptor.CacheStatsInterceptor
 import eu.kanade.tachiyomi.network.interceptor.CloudflareInterceptor
 import eu.kanade.tachiyomi.network.interceptor.IgnoreGzipInterceptor
+import eu.kanade.tachiyomi.network.interceptor.NetworkSchedulerInterceptor
+import eu.kanade.tachiyomi.network.interceptor.StaleWhileRevalidateInterceptor
 import eu.kanade.tachiyomi.network.interceptor.UncaughtExceptionInterceptor
 import eu.kanade.tachiyomi.network.interceptor.UserAgentInterceptor
-import io.github.vinceglb.filekit.FileKit
-import io.github.vinceglb.filekit.cacheDir
-import io.github.vinceglb.filekit.div
-import io.github.vinceglb.filekit.resolve
-import okhttp3.Cache
 import okhttp3.CookieJar
 import okhttp3.OkHttpClient
 import okhttp3.brotli.BrotliInterceptor
 import java.util.concurrent.TimeUnit
+import kotlin.time.Duration.Companion.days
 
 @PlatformSdk
 object NetworkHelper {
@@ -26,13 +24,15 @@ object NetworkHelper {
         connectTimeout(30, TimeUnit.SECONDS)
         readTimeout(30, TimeUnit.SECONDS)
         callTimeout(2, TimeUnit.MINUTES)
+        dispatcher(NetworkScheduler.dispatcher)
+        connectionPool(NetworkScheduler.connectionPool)
 
-        cache(Cache(
-            directory = FileKit.cacheDir.resolve("network_cache").toJavaFile(),
-            maxSize = 5L * 1024 * 1024, // 5 MiB
-        ))
+        cache(NetworkCache.cache)
         
         addInterceptor(UncaughtExceptionInterceptor())
+        addInterceptor(CacheStatsInterceptor())
+        addInterceptor(StaleWhileRevalidateInterceptor(1.days))
+        addInterceptor(NetworkSchedulerInterceptor())
         addInterceptor(UserAgentInterceptor(::defaultUserAgentProvider))
         addNetworkInterceptor(IgnoreGzipInterceptor())
         addNetworkInterceptor(BrotliInterceptor)
@@ -46,6 +46,25 @@ object NetworkHelper {
         )
     }.build()
 
+    /**
+     * For images, which are cached by the image loader itself. Responses aren't stored
+     * in the [NetworkCache] and don't count towards its statistics.
+     *
+     * Image loaders enqueue calls without awaiting them, so they don't go through the [NetworkScheduler],
+     * which would park a dispatcher thread for every poster of a busy host. They're limited by the loader instead.
+     */
+    val imageClient: OkHttpClient by lazy {
+        client.newBuilder().apply {
+            cache(null)
+
+            interceptors().removeAll {
+                it is CacheStatsInterceptor
+                        || it is StaleWhileRevalidateInterceptor
+                        || it is NetworkSchedulerInterceptor
+            }
+        }.build()
+    }
+
     /**
      * @deprecated Since extension-lib 1.5
      */
@@ -0,0 +1,253 @@
+package eu.kanade.tachiyomi.network
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.suspendCancellableCoroutine
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
+import java.io.IOException
+import java.lang.System.currentTimeMillis
+import java.util.ArrayDeque
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import kotlin.coroutines.resume
+
+/**
+ * Decides when requests of [NetworkHelper.client] may go to the network.
+ *
+ * Each host may have at most [MAX_REQUESTS_PER_HOST] requests running at once, so that
+ * a single slow site can't occupy the whole pool. Requests over the limit are queued per host
+ * and freed slots are handed out to the hosts in turns, so an extension searching for
+ * ten titles at once doesn't starve the one which asked for a single page.
+ *
+ * Calls awaited from coroutines are queued without blocking any thread.
+ */
+object NetworkScheduler {
+    const val MAX_REQUESTS = 64
+    const val MAX_REQUESTS_PER_HOST = 6
+
+    private val lock = Any()
+    private val hosts = hashMapOf<String, Host>()
+    private val readyHosts = ArrayDeque<Host>()
+    private var running = 0
+    private var waitedRequests = 0L
+    private var totalWaitMillis = 0L
+    private var maxWaitMillis = 0L
+
+    /**
+     * Requests made from inside of an another scheduled request (e.g. to refresh a token in an interceptor)
+     * must not wait for a slot, otherwise all slots of a host could end up waiting for themselves.
+     */
+    private val depth = ThreadLocal.withInitial { 0 }
+
+    private val _stats = MutableStateFlow(Stats(0, 0, 0, 0, 0))
+    val stats = _stats.asStateFlow()
+
+    /**
+     * Shared by all clients, so that they don't compete with each other
+     * behind the scheduler's back. The scheduler is the only gate, so the dispatcher itself is unbounded.
+     * Otherwise async calls waiting for a slot in the interceptor would hold dispatcher slots
+     * needed by awaited calls which already have one, and neither of them could ever proceed.
+     */
+    val dispatcher = Dispatcher().apply {
+        maxRequests = Int.MAX_VALUE
+        maxRequestsPerHost = Int.MAX_VALUE
+    }
+
+    /**
+     * The default pool keeps only 5 idle connections, which isn't
+     * enough when a single search hits dozens of extensions.
+     */
+    val connectionPool = ConnectionPool(
+        maxIdleConnections = 32,
+        keepAliveDuration = 5,
+        timeUnit = TimeUnit.MINUTES
+    )
+
+    data class Stats(
+        val running: Int,
+        val queued: Int,
+        val waitedRequests: Long,
+        val averageWaitMillis: Long,
+        val maxWaitMillis: Long
+    )
+
+    private class Host(val name: String) {
+        val waiters = ArrayDeque<Waiter>()
+        var running = 0
+    }
+
+    private class Waiter(val host: Host) {
+        val future = CompletableFuture<Unit>()
+        val enqueuedAt = currentTimeMillis()
+    }
+
+    internal val isNested get() = depth.get() > 0
+
+    /**
+     * Suspends until a request to the [host] is allowed to run.
+     * Every successful call must be followed by [release].
+     */
+    suspend fun acquire(host: String) {
+        val waiter = enqueue(host) ?: return
+
+        try {
+            suspendCancellableCoroutine { continuation ->
+                waiter.future.whenComplete { _, _ -> continuation.resume(Unit) }
+            }
+        } catch(e: CancellationException) {
+            cancel(waiter)
+            throw e
+        }
+    }
+
+    /**
+     * Blocks the current thread until a request to the [host] is allowed to run.
+     * Used by requests which were executed synchronously.
+     *
+     * @param isCanceled Checked periodically, so that a canceled call stops waiting.
+     * @throws IOException If the call got canceled or the thread interrupted.
+     */
+    fun acquireBlocking(host: String, isCanceled: () -> Boolean) {
+        val waiter = enqueue(host) ?: return
+
+        while(true) {
+            if(isCanceled()) {
+                cancel(waiter)
+                throw IOException("Canceled")
+            }
+
+            try {
+                waiter.future.get(250, TimeUnit.MILLISECONDS)
+                return
+            } catch(_: TimeoutException) {
+                continue
+            } catch(e: InterruptedException) {
+                cancel(waiter)
+                throw IOException(e)
+            }
+        }
+    }
+
+    fun release(host: String) {
+        synchronized(lock) {
+            val entry = hosts[host] ?: return
+            entry.running--
+            running--
+
+            if(entry.running == 0 && entry.waiters.isEmpty()) {
+                hosts.remove(host)
+            }
+
+            promote()
+            publishStats()
+        }
+    }
+
+    internal fun <T> nested(block: () -> T): T {
+        depth.set(depth.get() + 1)
+
+        try {
+            return block()
+        } finally {
+            depth.set(depth.get() - 1)
+        }
+    }
+
+    /**
+     * @return null if the slot was granted immediately.
+     */
+    private fun enqueue(host: String): Waiter? = synchronized(lock) {
+        val entry = hosts.getOrPut(host) { Host(host) }
+
+        if(entry.waiters.isEmpty() && canRun(entry)) {
+            grant(entry)
+            publishStats()
+            return null
+        }
+
+        Waiter(entry).also { waiter ->
+            if(entry.waiters.isEmpty()) {
+                readyHosts.addLast(entry)
+            }
+
+            entry.waiters.addLast(waiter)
+            publishStats()
+        }
+    }
+
+    private fun cancel(waiter: Waiter) {
+        synchronized(lock) {
+            if(waiter.future.isDone) {
+                // The slot was granted while we were giving up.
+                release(waiter.host.name)
+                return
+            }
+
+            waiter.host.waiters.remove(waiter)
+
+            if(waiter.host.waiters.isEmpty()) {
+                readyHosts.remove(waiter.host)
+
+                if(waiter.host.running == 0) {
+                    hosts.remove(waiter.host.name)
+                }
+            }
+
+            publishStats()
+        }
+    }
+
+    /**
+     * Hands out free slots to the queued hosts one by one,
+     * so that each one of them gets its turn.
+     */
+    private fun promote() {
+        var skipped = 0
+
+        while(running < MAX_REQUESTS && skipped < readyHosts.size) {
+            val host = readyHosts.removeFirst()
+
+            if(!canRun(host)) {
+                readyHosts.addLast(host)
+                skipped++
+                continue
+            }
+
+            val waiter = host.waiters.removeFirst()
+            val waited = currentTimeMillis() - waiter.enqueuedAt
+            waitedRequests++
+            totalWaitMillis += waited
+            maxWaitMillis = maxOf(maxWaitMillis, waited)
+
+            grant(host)
+            waiter.future.complete(Unit)
+            skipped = 0
+
+            if(host.waiters.isNotEmpty()) {
+                readyHosts.addLast(host)
+            }
+        }
+    }
+
+    private fun canRun(host: Host): Boolean {
+        return running < MAX_REQUESTS && host.running < MAX_REQUESTS_PER_HOST
+    }
+
+    private fun grant(host: Host) {
+        host.running++
+        running++
+    }
+
+    private fun publishStats() {
+        _stats.value = Stats(
+            running = running,
+            queued = readyHosts.sumOf { it.waiters.size },
+            waitedRequests = waitedRequests,
+            averageWaitMillis = if(waitedRequests == 0L) 0 else totalWaitMillis / waitedRequests,
+            maxWaitMillis = maxWaitMillis
+        )
+    }
+}
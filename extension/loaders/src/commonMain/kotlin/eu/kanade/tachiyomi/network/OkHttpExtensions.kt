@@ -2,7 +2,9 @@ package eu.kanade.tachiyomi.network
 
 import com.mrboomdev.awery.core.utils.PlatformSdk
 import jdk.internal.net.http.common.Utils.stackTrace
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.suspendCancellableCoroutine
 //import kotlinx.serialization.DeserializationStrategy
 //import kotlinx.serialization.json.Json
@@ -70,9 +72,44 @@ fun Call.asObservableSuccess(): Observable<Response> {
     }
 }
 
+private suspend fun Call.await(callStack: Array<StackTraceElement>): Response {
+    // Wait for a free slot here instead of blocking a dispatcher thread in the interceptor.
+    val host = request().url.host
+    NetworkScheduler.acquire(host)
+
+    try {
+        var call = this
+        var prepaid = emptySet<Any>()
+
+        while(true) {
+            val current = call
+            AwaitedCalls.add(current, prepaid)
+
+            try {
+                return current.enqueueAndAwait(callStack)
+            } catch(e: RetryLaterException) {
+                try {
+                    delay(e.delay)
+                } catch(c: CancellationException) {
+                    e.cancel()
+                    throw c
+                }
+
+                // A call can be executed only once.
+                prepaid = prepaid + e.permit
+                call = current.clone()
+            } finally {
+                AwaitedCalls.remove(current)
+            }
+        }
+    } finally {
+        NetworkScheduler.release(host)
+    }
+}
+
 // Based on https://github.com/gildor/kotlin-coroutines-okhttp
 @OptIn(ExperimentalCoroutinesApi::class)
-private suspend fun Call.await(callStack: Array<StackTraceElement>): Response {
+private suspend fun Call.enqueueAndAwait(callStack: Array<StackTraceElement>): Response {
     return suspendCancellableCoroutine { continuation ->
         val callback =
             object : Callback {
@@ -83,8 +120,18 @@ private suspend fun Call.await(callStack: Array<StackTraceElement>): Response {
                 }
 
                 override fun onFailure(call: Call, e: IOException) {
-                    // Don't bother with resuming the continuation if it is already cancelled.
-                    if (continuation.isCancelled) return
+                    // Don't bother with resuming the continuation if it is already cancelled,
+                    // but give back the token reserved for the retry, because nobody is going to use it.
+                    if (continuation.isCancelled) {
+                        (e as? RetryLaterException)?.cancel()
+                        return
+                    }
+
+                    if (e is RetryLaterException) {
+                        continuation.resumeWithException(e)
+                        return
+                    }
+
                     val exception = IOException(e.message, e).apply { stackTrace = callStack }
                     continuation.resumeWithException(exception)
                 }
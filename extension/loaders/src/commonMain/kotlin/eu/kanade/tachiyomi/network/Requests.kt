@@ -13,7 +13,7 @@ import okhttp3.RequestBody
 import java.util.concurrent.TimeUnit.MINUTES
 
 @PlatformSdk
-private val DEFAULT_CACHE_CONTROL = CacheControl.Builder().maxAge(10, MINUTES).build()
+internal val DEFAULT_CACHE_CONTROL = CacheControl.Builder().maxAge(10, MINUTES).build()
 
 @PlatformSdk
 private val DEFAULT_HEADERS = Headers.Builder().build()
@@ -0,0 +1,11 @@
+package eu.kanade.tachiyomi.network.interceptor
+
+import eu.kanade.tachiyomi.network.NetworkCache
+import okhttp3.Interceptor
+import okhttp3.Response
+
+internal class CacheStatsInterceptor : Interceptor {
+    override fun intercept(chain: Interceptor.Chain): Response {
+        return NetworkCache.record(chain.proceed(chain.request()))
+    }
+}
@@ -0,0 +1,35 @@
+package eu.kanade.tachiyomi.network.interceptor
+
+import eu.kanade.tachiyomi.network.AwaitedCalls
+import eu.kanade.tachiyomi.network.NetworkScheduler
+import okhttp3.Interceptor
+import okhttp3.Response
+
+/**
+ * Makes requests wait for their turn in the [NetworkScheduler].
+ * Calls which already got a slot while being awaited are let through.
+ */
+internal class NetworkSchedulerInterceptor : Interceptor {
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val call = chain.call()
+
+        // Cache lookups don't touch the network.
+        if(request.cacheControl.onlyIfCached || NetworkScheduler.isNested) {
+            return chain.proceed(request)
+        }
+
+        if(call in AwaitedCalls) {
+            return NetworkScheduler.nested { chain.proceed(request) }
+        }
+
+        val host = request.url.host
+        NetworkScheduler.acquireBlocking(host) { call.isCanceled() }
+
+        try {
+            return NetworkScheduler.nested { chain.proceed(request) }
+        } finally {
+            NetworkScheduler.release(host)
+        }
+    }
+}
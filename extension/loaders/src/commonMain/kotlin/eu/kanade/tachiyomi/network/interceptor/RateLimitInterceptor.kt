@@ -1,17 +1,19 @@
 package eu.kanade.tachiyomi.network.interceptor
 
 import com.mrboomdev.awery.core.utils.PlatformSdk
-import kotlinx.coroutines.InternalCoroutinesApi
-import kotlinx.coroutines.internal.synchronized
+import eu.kanade.tachiyomi.network.AwaitedCalls
+import eu.kanade.tachiyomi.network.RetryLaterException
+import okhttp3.Call
 import okhttp3.Interceptor
 import okhttp3.OkHttpClient
 import okhttp3.Response
 import java.io.IOException
-import java.lang.System.currentTimeMillis
-import java.util.ArrayDeque
-import java.util.concurrent.Semaphore
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
+import kotlin.jvm.Synchronized
+import kotlin.math.min
 import kotlin.time.Duration
+import kotlin.time.Duration.Companion.nanoseconds
 import kotlin.time.Duration.Companion.seconds
 import kotlin.time.toDuration
 import kotlin.time.toDurationUnit
@@ -59,17 +61,11 @@ fun OkHttpClient.Builder.rateLimit(permits: Int, period: Duration = 1.seconds) =
 	addInterceptor(RateLimitInterceptor(null, permits, period))
 
 /** We can probably accept domains or wildcards by comparing with [endsWith], etc. */
-@Suppress("PLATFORM_CLASS_MAPPED_TO_KOTLIN")
 internal class RateLimitInterceptor(
 	private val host: String?,
 	private val permits: Int,
-	period: Duration,
+	private val period: Duration,
 ) : Interceptor {
-	private val requestQueue = ArrayDeque<Long>(permits)
-	private val rateLimitMillis = period.inWholeMilliseconds
-	private val fairLock = Semaphore(1, true)
-
-	@OptIn(InternalCoroutinesApi::class)
 	override fun intercept(chain: Interceptor.Chain): Response {
 		val call = chain.call()
 		if (call.isCanceled()) throw IOException("Canceled")
@@ -80,54 +76,106 @@ internal class RateLimitInterceptor(
 			else -> return chain.proceed(request)
 		}
 
-		try {
-			fairLock.acquire()
-		} catch (e: InterruptedException) {
-			throw IOException(e)
-		}
+		// Cache lookups don't touch the network, so they mustn't wait for a permit.
+		if (request.cacheControl.onlyIfCached) return chain.proceed(request)
+
+		val bucket = TokenBucket.get(request.url.host, permits, period)
+
+		if (!AwaitedCalls.consumePrepaid(call, bucket)) {
+			val wait = bucket.reserve()
 
-		val requestQueue = this.requestQueue
-		val timestamp: Long
-
-		try {
-			synchronized(requestQueue) {
-				while (requestQueue.size >= permits) { // queue is full, remove expired entries
-					val periodStart = currentTimeMillis() - rateLimitMillis
-					var hasRemovedExpired = false
-					while (!requestQueue.isEmpty() && requestQueue.first <= periodStart) {
-						requestQueue.removeFirst()
-						hasRemovedExpired = true
-					}
-					if (call.isCanceled()) {
-						throw IOException("Canceled")
-					} else if (hasRemovedExpired) {
-						break
-					} else {
-						try { // wait for the first entry to expire, or notified by cached response
-							(requestQueue as Object).wait(requestQueue.first - periodStart)
-						} catch (_: InterruptedException) {
-							continue
-						}
-					}
+			if (wait.isPositive()) {
+				if (call in AwaitedCalls) {
+					// Let the coroutine suspend instead of parking the dispatcher thread.
+					throw RetryLaterException(wait, bucket) { bucket.refund() }
 				}
 
-				// add request to queue
-				timestamp = currentTimeMillis()
-				requestQueue.addLast(timestamp)
+				sleepUntilAvailable(call, bucket, wait)
 			}
-		} finally {
-			fairLock.release()
 		}
 
 		val response = chain.proceed(request)
-		if (response.networkResponse == null) { // response is cached, remove it from queue
-			synchronized(requestQueue) {
-				if (requestQueue.isEmpty() || timestamp < requestQueue.first) return@synchronized
-				requestQueue.removeFirstOccurrence(timestamp)
-				(requestQueue as Object).notifyAll()
-			}
+		if (response.networkResponse == null) { // response is cached, give the permit back
+			bucket.refund()
 		}
 
 		return response
 	}
-}
\ No newline at end of file
+
+	private fun sleepUntilAvailable(call: Call, bucket: TokenBucket, wait: Duration) {
+		val deadline = System.nanoTime() + wait.inWholeNanoseconds
+
+		while (true) {
+			if (call.isCanceled()) {
+				bucket.refund()
+				throw IOException("Canceled")
+			}
+
+			val left = deadline - System.nanoTime()
+			if (left <= 0) return
+
+			try {
+				// Wake up from time to time to notice the call being canceled.
+				Thread.sleep(min(left, 250_000_000L) / 1_000_000)
+			} catch (e: InterruptedException) {
+				bucket.refund()
+				throw IOException(e)
+			}
+		}
+	}
+}
+
+/**
+ * Permits are refilled at a steady pace of [permits] per [period] and up to
+ * [permits] of them can be accumulated. Permits may be reserved ahead,
+ * so callers are served in the order they asked.
+ *
+ * Buckets are shared per host, so that clients which extensions
+ * rebuild on the fly still respect the same limit.
+ */
+internal class TokenBucket private constructor(
+	private val permits: Int,
+	period: Duration
+) {
+	private val nanosPerPermit = period.inWholeNanoseconds / permits
+	private var available = permits.toDouble()
+	private var lastRefill = System.nanoTime()
+
+	/**
+	 * Takes a permit, possibly one which will only be refilled in the future.
+	 * @return How long to wait before the request may be sent.
+	 */
+	@Synchronized
+	fun reserve(): Duration {
+		refill()
+		available--
+
+		return if (available >= 0) Duration.ZERO else {
+			(-available * nanosPerPermit).toLong().nanoseconds
+		}
+	}
+
+	@Synchronized
+	fun refund() {
+		refill()
+		available = min(permits.toDouble(), available + 1)
+	}
+
+	private fun refill() {
+		val now = System.nanoTime()
+		available = min(permits.toDouble(), available + (now - lastRefill).toDouble() / nanosPerPermit)
+		lastRefill = now
+	}
+
+	private data class Key(val host: String, val permits: Int, val period: Duration)
+
+	companion object {
+		private val buckets = ConcurrentHashMap<Key, TokenBucket>()
+
+		fun get(host: String, permits: Int, period: Duration): TokenBucket {
+			return buckets.computeIfAbsent(Key(host, permits, period)) {
+				TokenBucket(permits, period)
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package eu.kanade.tachiyomi.network.interceptor
+
+import eu.kanade.tachiyomi.network.DEFAULT_CACHE_CONTROL
+import okhttp3.CacheControl
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.Interceptor
+import okhttp3.Response
+import okio.blackholeSink
+import java.io.IOException
+import java.net.HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import kotlin.time.Duration
+import kotlin.time.DurationUnit
+
+/**
+ * Answers GET requests built with the default cache control straight from the cache,
+ * even if the cached response is already stale, and refreshes it in the background.
+ * Sources are browsed back and forth a lot, so waiting for the same page to be
+ * downloaded once more after ten minutes isn't worth it.
+ *
+ * Responses which the server marked as "no-cache" are never served stale.
+ * Revalidation clones the original call, so that it goes through the same client
+ * with all interceptors and headers the source has added to it.
+ */
+internal class StaleWhileRevalidateInterceptor(
+    maxStale: Duration
+) : Interceptor {
+    private val revalidating = ConcurrentHashMap.newKeySet<String>()
+    private val revalidations = ConcurrentHashMap.newKeySet<Call>()
+
+    private val staleCacheControl = CacheControl.Builder()
+        .maxAge(DEFAULT_CACHE_CONTROL.maxAgeSeconds, TimeUnit.SECONDS)
+        .maxStale(maxStale.toInt(DurationUnit.SECONDS), TimeUnit.SECONDS)
+        .onlyIfCached()
+        .build()
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+
+        if(chain.call() in revalidations) {
+            return chain.proceed(request.newBuilder()
+                .cacheControl(REVALIDATE_CACHE_CONTROL)
+                .build())
+        }
+
+        if(request.method != "GET" || request.header("Cache-Control") != DEFAULT_CACHE_CONTROL.toString()) {
+            return chain.proceed(request)
+        }
+
+        val cached = chain.proceed(request.newBuilder()
+            .cacheControl(staleCacheControl)
+            .build())
+
+        if(cached.code == HTTP_GATEWAY_TIMEOUT && cached.cacheResponse == null) {
+            cached.close()
+            return chain.proceed(request)
+        }
+
+        // OkHttp marks responses served past their freshness lifetime with this warning.
+        if(cached.headers("Warning").any { it.startsWith("110") }) {
+            revalidate(request.url.toString(), chain.call())
+        }
+
+        return cached
+    }
+
+    private fun revalidate(key: String, original: Call) {
+        if(!revalidating.add(key)) return
+
+        val revalidation = original.clone()
+        revalidations += revalidation
+
+        revalidation.enqueue(object : Callback {
+            override fun onResponse(call: Call, response: Response) {
+                revalidating.remove(key)
+                revalidations.remove(call)
+
+                // The body has to be consumed, otherwise it won't be written to the cache.
+                response.use { it.body.source().readAll(blackholeSink()) }
+            }
+
+            override fun onFailure(call: Call, e: IOException) {
+                revalidating.remove(key)
+                revalidations.remove(call)
+            }
+        })
+    }
+
+    private companion object {
+        /**
+         * Makes the cached response stale, so that it is validated
+         * with a conditional request if the server supports it.
+         */
+        val REVALIDATE_CACHE_CONTROL = CacheControl.Builder()
+            .maxAge(0, TimeUnit.SECONDS)
+            .build()
+    }
+}
@@ -1,8 +1,43 @@
 package com.mrboomdev.awery.extension.loaders
 
+import com.mrboomdev.awery.extension.loaders.awery.AweryExtensionConstants
+import com.mrboomdev.awery.extension.loaders.awery.JarExtensionIndex
+import com.mrboomdev.awery.extension.loaders.awery.ResolvedExtensionParent
 import com.mrboomdev.awery.extension.sdk.Extension
+import io.github.vinceglb.filekit.exists
+import io.github.vinceglb.filekit.isRegularFile
+import io.github.vinceglb.filekit.list
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.channels.ProducerScope
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
 
 actual suspend fun ProducerScope<Extension>.loadAllImpl() {
-    println("Desktop doesn't support extensions loading currently!")
-}
\ No newline at end of file
+    val directories = AweryExtensionConstants.installedDirectory.let {
+        if(it.exists()) it else null
+    }?.list()?.filterNot { it.isRegularFile() } ?: return
+
+    val index = JarExtensionIndex.load()
+
+    // Jars are being hashed and loaded in parallel,
+    // so that the startup takes as long as the slowest one.
+    coroutineScope {
+        for(directory in directories) {
+            launch(Dispatchers.IO) {
+                val entry = try {
+                    index.resolve(directory)
+                } catch(_: Throwable) {
+                    // Let the extension itself report what's wrong.
+                    null
+                }
+
+                send(ResolvedExtensionParent(directory, entry?.manifest).apply {
+                    // Cataloged extensions are loaded only once they're used.
+                    if(entry?.hasMainClass == true && !ExtensionCatalog.isUpToDate(id, version)) preload()
+                })
+            }
+        }
+    }
+
+    index.save()
+}
@@ -0,0 +1,120 @@
+package com.mrboomdev.awery.extension.loaders.awery
+
+import com.mrboomdev.awery.core.utils.logger
+import com.mrboomdev.awery.core.utils.toJavaFile
+import io.github.vinceglb.filekit.FileKit
+import io.github.vinceglb.filekit.PlatformFile
+import io.github.vinceglb.filekit.div
+import io.github.vinceglb.filekit.filesDir
+import io.github.vinceglb.filekit.name
+import io.github.vinceglb.filekit.resolve
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.ZipFile
+
+private val logger by logger()
+
+/**
+ * Remembers manifests of installed jar extensions, so that unchanged ones
+ * don't have to be parsed and looked into on every startup.
+ * Entries are keyed by the hash of the jar, size and modification time are
+ * only used to avoid hashing jars which obviously weren't touched.
+ * The manifest lives next to the jar, so it is reparsed whenever its own size or modification time changes.
+ */
+internal class JarExtensionIndex private constructor(
+	private val previous: Map<String, Entry>
+) {
+	private val current = ConcurrentHashMap<String, Entry>()
+
+	@Serializable
+	data class Entry(
+		val sha256: String,
+		val size: Long,
+		val lastModified: Long,
+		val manifestSize: Long = -1,
+		val manifestLastModified: Long = -1,
+		val manifest: AweryExtensionManifest,
+		val hasMainClass: Boolean
+	)
+
+	/**
+	 * @return null if the directory doesn't contain a jar for this platform.
+	 */
+	fun resolve(directory: PlatformFile): Entry? {
+		val jar = directory.resolve(AweryExtensionConstants.platformBinary).toJavaFile()
+		if(!jar.isFile) return null
+
+		val manifestFile = directory.resolve(AweryExtensionConstants.manifestPath).toJavaFile()
+		val manifestSize = manifestFile.length()
+		val manifestLastModified = manifestFile.lastModified()
+
+		val size = jar.length()
+		val lastModified = jar.lastModified()
+		val cached = previous[directory.name]?.takeIf {
+			it.manifestSize == manifestSize && it.manifestLastModified == manifestLastModified
+		}
+
+		val entry = if(cached != null && cached.size == size && cached.lastModified == lastModified) {
+			cached
+		} else {
+			val sha256 = jar.inputStream().use { input ->
+				val digest = MessageDigest.getInstance("SHA-256")
+				val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+
+				while(true) {
+					val read = input.read(buffer)
+					if(read == -1) break
+					digest.update(buffer, 0, read)
+				}
+
+				digest.digest().joinToString("") { "%02x".format(it) }
+			}
+
+			if(cached?.sha256 == sha256) {
+				cached.copy(size = size, lastModified = lastModified)
+			} else {
+				val manifest = AweryExtensionConstants.manifestJsonFormat
+					.decodeFromString<AweryExtensionManifest>(manifestFile.readText())
+
+				val hasMainClass = ZipFile(jar).use {
+					it.getEntry(manifest.main.replace('.', '/') + ".class") != null
+				}
+
+				Entry(sha256, size, lastModified, manifestSize, manifestLastModified, manifest, hasMainClass)
+			}
+		}
+
+		current[directory.name] = entry
+		return entry
+	}
+
+	/**
+	 * Writes entries which were resolved since loading.
+	 * Extensions which were uninstalled are dropped this way.
+	 */
+	fun save() {
+		try {
+			file.parentFile.mkdirs()
+			file.writeText(Json.encodeToString(HashMap(current)))
+		} catch(t: Throwable) {
+			logger.e("Failed to save the jar extensions index!", t)
+		}
+	}
+
+	companion object {
+		private val file by lazy {
+			(FileKit.filesDir / "extensions/jar_index.json").toJavaFile()
+		}
+
+		fun load() = JarExtensionIndex(try {
+			if(file.exists()) {
+				Json.decodeFromString<Map<String, Entry>>(file.readText())
+			} else emptyMap()
+		} catch(t: Throwable) {
+			logger.e("Failed to read the jar extensions index, it will be rebuilt.", t)
+			emptyMap()
+		})
+	}
+}
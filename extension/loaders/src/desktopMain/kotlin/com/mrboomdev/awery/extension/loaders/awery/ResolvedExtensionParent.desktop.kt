@@ -1,12 +1,22 @@
 package com.mrboomdev.awery.extension.loaders.awery
 
+import com.mrboomdev.awery.core.utils.toJavaFile
 import com.mrboomdev.awery.extension.sdk.Extension
 import io.github.vinceglb.filekit.PlatformFile
+import java.net.URLClassLoader
 
 internal actual fun loadMain(
 	parent: Extension,
 	binary: PlatformFile,
 	main: String
 ): Extension {
-	TODO("Not yet implemented")
-}
\ No newline at end of file
+	// Every extension gets its own class loader, so that
+	// their dependencies can't clash with each other.
+	return URLClassLoader(
+		"awery-extension-${parent.id}",
+		arrayOf(binary.toJavaFile().toURI().toURL()),
+		ResolvedExtensionParent::class.java.classLoader
+	).loadClass(main)!!
+		.getConstructor(Extension::class.java)
+		.newInstance(parent) as Extension
+}
@@ -2,15 +2,30 @@ package eu.kanade.tachiyomi.network
 
 import com.mrboomdev.awery.core.utils.PlatformSdk
 import com.whl.quickjs.wrapper.QuickJSContext
-import kotlinx.coroutines.Dispatchers
 
 @PlatformSdk
 actual object JavaScriptEngine {
+    private val pool by lazy {
+        JavaScriptRuntimePool(
+            name = "JavaScriptEngine",
+            create = {
+                QuickJSContext.create().apply {
+                    setMemoryLimit(JavaScriptRuntimePool.MEMORY_LIMIT)
+                    evaluate(JavaScriptRuntimePool.SNAPSHOT_SCRIPT)
+                }
+            },
+            reset = { it.evaluate(JavaScriptRuntimePool.RESET_SCRIPT) },
+            close = { it.close() }
+        )
+    }
+
     @PlatformSdk
-    actual suspend fun <T> evaluate(script: String): T = with(Dispatchers.IO) {
-        QuickJSContext.create().use {
-            @Suppress("UNCHECKED_CAST")
-            it.evaluate(script) as T
+    actual suspend fun <T> evaluate(script: String): T = pool.use {
+        val bytecode = JavaScriptBytecodeCache.getOrCompile(script) { source ->
+            it.compile(source)
         }
+
+        @Suppress("UNCHECKED_CAST")
+        it.execute(bytecode) as T
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package eu.kanade.tachiyomi.network
+
+import com.whl.quickjs.wrapper.QuickJSContext
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.time.Duration
+import kotlin.time.measureTime
+
+/**
+ * Compares how many scripts per second are evaluated with and without the pool.
+ * Runtimes are created the same way as the desktop [JavaScriptEngine] does.
+ *
+ * Only run if asked for with -Pawery.benchmark
+ */
+class JavaScriptRuntimePoolBenchmark {
+    private fun createRuntime() = QuickJSContext.create().apply {
+        setMemoryLimit(JavaScriptRuntimePool.MEMORY_LIMIT)
+        evaluate(JavaScriptRuntimePool.SNAPSHOT_SCRIPT)
+    }
+
+    private val pool = JavaScriptRuntimePool(
+        name = "JavaScriptRuntimePoolBenchmark",
+        create = ::createRuntime,
+        reset = { it.evaluate(JavaScriptRuntimePool.RESET_SCRIPT) },
+        close = { it.close() }
+    )
+
+    private val unpooledDispatcher = Dispatchers.IO.limitedParallelism(JavaScriptRuntimePool.DEFAULT_SIZE)
+
+    @AfterTest
+    fun shutdown() {
+        pool.shutdown()
+    }
+
+    @Test
+    fun pooledVsUnpooled() = runBlocking {
+        // Warm up the JIT of both paths and let the pool create its runtimes.
+        repeat(WARMUP) {
+            evaluateUnpooled()
+            evaluatePooled()
+        }
+
+        val unpooledResults: List<Any?>
+        val pooledResults: List<Any?>
+
+        val unpooled = measureTime {
+            // Same amount of threads as the pool has, so that only the startup cost is compared.
+            unpooledResults = (0 until SCRIPTS).map { async(unpooledDispatcher) { evaluateUnpooled() } }.awaitAll()
+        }
+
+        val pooled = measureTime {
+            pooledResults = (0 until SCRIPTS).map { async { evaluatePooled() } }.awaitAll()
+        }
+
+        println("Unpooled: ${throughput(unpooled)} scripts/s ($unpooled)")
+        println("Pooled: ${throughput(pooled)} scripts/s ($pooled)")
+
+        assertEquals(List(SCRIPTS) { EXPECTED_RESULT }, unpooledResults)
+        assertEquals(unpooledResults, pooledResults)
+    }
+
+    private fun evaluateUnpooled(): Any? {
+        val runtime = createRuntime()
+
+        try {
+            return runtime.evaluate(SCRIPT)
+        } finally {
+            runtime.close()
+        }
+    }
+
+    private suspend fun evaluatePooled() = pool.use { it.evaluate(SCRIPT) }
+
+    private fun throughput(duration: Duration) = (SCRIPTS / duration.inWholeMilliseconds.coerceAtLeast(1).toDouble() * 1000).toInt()
+
+    private companion object {
+        const val WARMUP = 20
+        const val SCRIPTS = 500
+        const val EXPECTED_RESULT = "https://example.com/video.m3u8"
+
+        /**
+         * Something similar to what sources do to get a video url out of an obfuscated player.
+         */
+        const val SCRIPT = """
+            var encoded = "aHR0cHM6Ly9leGFtcGxlLmNvbS92aWRlby5tM3U4";
+            var chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+            var result = "";
+
+            for(var i = 0; i < encoded.length; i += 4) {
+                var n = (chars.indexOf(encoded[i]) << 18) | (chars.indexOf(encoded[i + 1]) << 12)
+                    | (chars.indexOf(encoded[i + 2]) << 6) | chars.indexOf(encoded[i + 3]);
+
+                result += String.fromCharCode((n >> 16) & 255, (n >> 8) & 255, n & 255);
+            }
+
+            result;
+        """
+    }
+}
@@ -0,0 +1,39 @@
+package eu.kanade.tachiyomi.network
+
+import com.whl.quickjs.wrapper.QuickJSContext
+import kotlinx.coroutines.runBlocking
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class JavaScriptRuntimePoolTest {
+    private val pool = JavaScriptRuntimePool(
+        name = "JavaScriptRuntimePoolTest",
+        create = {
+            QuickJSContext.create().apply {
+                setMemoryLimit(JavaScriptRuntimePool.MEMORY_LIMIT)
+                evaluate(JavaScriptRuntimePool.SNAPSHOT_SCRIPT)
+            }
+        },
+        reset = { it.evaluate(JavaScriptRuntimePool.RESET_SCRIPT) },
+        close = { it.close() }
+    )
+
+    @AfterTest
+    fun shutdown() {
+        pool.shutdown()
+    }
+
+    @Test
+    fun globalsDoNotLeakBetweenScripts() = runBlocking {
+        repeat(JavaScriptRuntimePool.DEFAULT_SIZE * 2) {
+            pool.use { it.evaluate("var leaked = 1; globalThis.alsoLeaked = 2;") }
+        }
+
+        repeat(JavaScriptRuntimePool.DEFAULT_SIZE * 2) {
+            assertEquals("undefined,undefined", pool.use {
+                it.evaluate("[typeof leaked, typeof alsoLeaked].join()")
+            })
+        }
+    }
+}
@@ -24,4 +24,12 @@ data class Media(
     enum class Type {
         WATCHABLE, READABLE
     }
+    
+    companion object {
+        /**
+         * A key of the [extras] under which a poster having lower resolution than the [poster] may be stored.
+         * It'll be used in places where posters are displayed as small thumbnails.
+         */
+        const val EXTRA_SMALL_POSTER = "smallPoster"
+    }
 }
\ No newline at end of file
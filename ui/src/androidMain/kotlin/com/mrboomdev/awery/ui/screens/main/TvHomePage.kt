@@ -23,14 +23,12 @@ import androidx.compose.ui.unit.dp
 import androidx.lifecycle.viewmodel.compose.viewModel
 import androidx.tv.material3.*
 import coil3.compose.AsyncImage
-import coil3.compose.LocalPlatformContext
-import coil3.request.ImageRequest
-import com.mrboomdev.awery.extension.loaders.getPoster
 import com.mrboomdev.awery.extension.sdk.Media
 import com.mrboomdev.awery.resources.*
 import com.mrboomdev.awery.ui.navigation.Navigation
 import com.mrboomdev.awery.ui.navigation.Routes
 import com.mrboomdev.awery.ui.screens.home.HomeViewModel
+import com.mrboomdev.awery.ui.utils.MediaPoster
 import com.mrboomdev.awery.ui.utils.singleItem
 import com.mrboomdev.awery.ui.utils.thenIf
 import org.jetbrains.compose.resources.painterResource
@@ -96,13 +94,7 @@ internal fun TvHomePage(
 											.aspectRatio(7F / 10F)
 											.background(MaterialTheme.colorScheme.surfaceVariant),
 
-										model = media.getPoster()?.let {
-											ImageRequest.Builder(LocalPlatformContext.current)
-												.placeholderMemoryCacheKey(it)
-												.memoryCacheKey(it)
-												.data(it)
-												.build()
-										},
+										model = MediaPoster(media),
 
 										error = painterResource(Res.drawable.poster_no_image),
 										contentScale = ContentScale.Crop,
@@ -0,0 +1,15 @@
+package com.mrboomdev.awery.ui.utils
+
+import androidx.compose.ui.graphics.ImageBitmap
+import androidx.compose.ui.graphics.asImageBitmap
+import coil3.BitmapImage
+import coil3.Image
+import coil3.request.ImageRequest
+import coil3.request.allowHardware
+import coil3.toBitmap
+
+internal actual fun ImageRequest.Builder.allowSoftwareBitmap() = allowHardware(false)
+
+internal actual fun Image.toImageBitmap(): ImageBitmap {
+	return ((this as? BitmapImage)?.bitmap ?: toBitmap()).asImageBitmap()
+}
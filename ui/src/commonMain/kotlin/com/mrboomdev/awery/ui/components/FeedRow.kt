@@ -3,6 +3,7 @@ package com.mrboomdev.awery.ui.components
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyRow
 import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.rememberLazyListState
 import androidx.compose.material3.MaterialTheme
 import androidx.compose.material3.Text
 import androidx.compose.runtime.Composable
@@ -11,8 +12,11 @@ import androidx.compose.ui.Modifier
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import com.mrboomdev.awery.extension.sdk.Media
+import com.mrboomdev.awery.ui.utils.MediaPoster
 import com.mrboomdev.awery.ui.utils.contextMenuOpenDetector
 import com.mrboomdev.awery.ui.utils.exclude
+import com.mrboomdev.awery.ui.utils.pagination.InfiniteScroll
+import com.mrboomdev.awery.ui.utils.pagination.PrefetchImages
 
 @Composable
 fun FeedRow(
@@ -22,7 +26,8 @@ fun FeedRow(
     actions: @Composable RowScope.() -> Unit = {},
     items: List<Media>,
     onMediaSelected: (Media) -> Unit,
-    onMediaLongClick: ((Media) -> Unit)? = null
+    onMediaLongClick: ((Media) -> Unit)? = null,
+    onLoadMore: (suspend () -> Unit)? = null
 ) {
     FeedRow(
         modifier = modifier,
@@ -31,9 +36,20 @@ fun FeedRow(
         actions = actions
     ) { paddingValues ->
         Spacer(Modifier.height(16.dp))
+        
+        val state = rememberLazyListState()
+        
+        PrefetchImages(state) { index ->
+            listOfNotNull(items.getOrNull(index)?.let(::MediaPoster))
+        }
+        
+        if(onLoadMore != null) {
+            InfiniteScroll(state = state, loadMore = onLoadMore)
+        }
 
         LazyRow(
             modifier = Modifier.fillMaxWidth(),
+            state = state,
             contentPadding = paddingValues,
             horizontalArrangement = Arrangement.spacedBy(8.dp)
         ) {
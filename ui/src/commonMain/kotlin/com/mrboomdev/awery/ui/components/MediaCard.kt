@@ -29,14 +29,15 @@ import androidx.compose.ui.text.style.TextOverflow
 import androidx.compose.ui.unit.dp
 import coil3.compose.AsyncImage
 import coil3.compose.LocalPlatformContext
+import coil3.compose.rememberConstraintsSizeResolver
 import coil3.request.ImageRequest
-import com.mrboomdev.awery.extension.loaders.getPoster
 import com.mrboomdev.awery.extension.sdk.Media
 import com.mrboomdev.awery.resources.Res
 import com.mrboomdev.awery.resources.logo_aniyomi
 import com.mrboomdev.awery.resources.logo_awery
 import com.mrboomdev.awery.resources.poster_no_image
 import com.mrboomdev.awery.ui.popups.MediaActionsDialog
+import com.mrboomdev.awery.ui.utils.MediaPoster
 import dev.chrisbanes.haze.HazeDefaults.style
 import jdk.javadoc.internal.doclets.formats.html.markup.HtmlStyle
 import org.jetbrains.compose.resources.painterResource
@@ -57,18 +58,22 @@ fun MediaCard(
             ),
         verticalArrangement = Arrangement.spacedBy(12.dp)
     ) {
+        val context = LocalPlatformContext.current
+        val sizeResolver = rememberConstraintsSizeResolver()
+        
         AsyncImage(
             modifier = Modifier
                 .clip(RoundedCornerShape(10.dp))
                 .fillMaxWidth()
                 .aspectRatio(7F / 10F)
-                .background(MaterialTheme.colorScheme.surfaceContainerLow),
+                .background(MaterialTheme.colorScheme.surfaceContainerLow)
+                .then(sizeResolver),
             
-            model = media.getPoster()?.let { 
-                ImageRequest.Builder(LocalPlatformContext.current)
-                    .placeholderMemoryCacheKey(it)
-                    .memoryCacheKey(it)
-                    .data(it)
+            // Posters are decoded at the size of the card, not at the one served by the source.
+            model = remember(media, sizeResolver) {
+                ImageRequest.Builder(context)
+                    .data(MediaPoster(media))
+                    .size(sizeResolver)
                     .build()
             },
             
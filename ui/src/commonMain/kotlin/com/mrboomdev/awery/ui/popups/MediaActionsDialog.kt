@@ -19,7 +19,7 @@ import com.cheonjaeung.compose.grid.VerticalGrid
 import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.core.utils.launchGlobal
 import com.mrboomdev.awery.core.utils.replaceAll
-import com.mrboomdev.awery.data.database.database
+import com.mrboomdev.awery.data.blacklist.Blacklist
 import com.mrboomdev.awery.data.database.entity.DBBlacklistedMedia
 import com.mrboomdev.awery.extension.sdk.Media
 import com.mrboomdev.awery.resources.*
@@ -158,7 +158,7 @@ fun MediaActionsDialog(
 						text = stringResource(Res.string.hide),
 						onClick = {
 							launchGlobal(Dispatchers.IO) {
-								Awery.database.mediaBlacklist.add(DBBlacklistedMedia(
+								Blacklist.add(DBBlacklistedMedia(
 									extensionId = extensionId,
 									mediaId = media.id,
 									name = media.title
@@ -170,7 +170,7 @@ fun MediaActionsDialog(
 										actionText = getString(Res.string.cancel),
 										onClick = {
 											launchGlobal(Dispatchers.IO) {
-												Awery.database.mediaBlacklist.delete(DBBlacklistedMedia(
+												Blacklist.remove(DBBlacklistedMedia(
 													extensionId = extensionId,
 													mediaId = media.id,
 													name = media.title
@@ -17,9 +17,8 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.mrboomdev.awery.core.utils.LoadingStatus
 import com.mrboomdev.awery.core.utils.Log
-import com.mrboomdev.awery.core.utils.asyncTryingSupervise
-import com.mrboomdev.awery.core.utils.mayStartLoading
 import com.mrboomdev.awery.data.AgeRating
+import com.mrboomdev.awery.data.blacklist.Blacklist
 import com.mrboomdev.awery.data.settings.AwerySettings
 import com.mrboomdev.awery.extension.loaders.Extensions
 import com.mrboomdev.awery.extension.loaders.Extensions.get
@@ -38,12 +37,13 @@ import com.mrboomdev.awery.ui.popups.MediaActionsDialog
 import com.mrboomdev.awery.ui.theme.isAmoledTheme
 import com.mrboomdev.awery.ui.utils.*
 import com.mrboomdev.awery.ui.utils.pagination.InfiniteScroll
+import com.mrboomdev.awery.ui.utils.pagination.Paginator
 import com.mrboomdev.navigation.core.Navigation
 import com.mrboomdev.navigation.core.safePop
-import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.async
 import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.async
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.withContext
 import org.jetbrains.compose.resources.painterResource
@@ -73,8 +73,9 @@ fun ExtensionFeedScreen(
 
 	InfiniteScroll(
 		state = lazyGridState,
-		buffer = 1,
-		loadMore = { viewModel.loadMore().await() }
+		paginator = viewModel.paginator,
+		// The first item is the "scrollFix" one.
+		prefetchImages = { index -> listOfNotNull(viewModel.media.getOrNull(index - 1)?.let(::MediaPoster)) }
 	)
 
     Scaffold(
@@ -198,60 +199,50 @@ class ExtensionFeedScreenViewModel(
     val extension = _extension.asStateFlow()
     
     private val feed = Feed(destination.feedId, destination.feedName)
-    private var module: CatalogModule? = null
-    private var currentPage = 0
-    
-    private val _loadingStatus = mutableStateOf<LoadingStatus>(LoadingStatus.NotInitialized)
-    val loadingStatus by _loadingStatus
     
-    private val _media = mutableStateListOf<Media>()
-    val media: List<Media> = _media
+    // Pages may be restored from the cache, but the title still needs the extension.
+    private val module = viewModelScope.async(Dispatchers.Default) {
+        Extensions[destination.extensionId]?.also {
+            _extension.emit(it)
+        }?.get<CatalogModule>() ?: run {
+            toaster.toast("Extension is no longer installed!")
+            withContext(Dispatchers.Main) { navigation.safePop() }
+            null
+        }
+    }
     
-    fun loadMore(): Deferred<Unit> {
-        if(!_loadingStatus.value.mayStartLoading) return viewModelScope.async {}
-        _loadingStatus.value = LoadingStatus.Loading
-        
-        return viewModelScope.asyncTryingSupervise(Dispatchers.Default, onCatch = {
-            _loadingStatus.value = LoadingStatus.Failed(it)
-            Log.e("ExtensionFeedScreen", "Failed to load an feed!", it)
-        }) {
-            if(module == null) {
-                module = Extensions[destination.extensionId]?.also {
-                    _extension.emit(it)
-                }?.get<CatalogModule>() ?: run { 
-                    toaster.toast("Extension is no longer installed!")
-                    withContext(Dispatchers.Main) { navigation.safePop() }
-                    return@asyncTryingSupervise
+    val paginator = Paginator<Media>(
+        scope = viewModelScope,
+        cacheKey = Triple("feed", destination.extensionId, destination.feedId),
+        key = { it.id },
+        filter = { items ->
+            Blacklist.filter(destination.extensionId, items).filter { item ->
+                when(AwerySettings.adultContent.value) {
+                    AwerySettings.AdultContent.SHOW -> true
+
+                    AwerySettings.AdultContent.ONLY ->
+                        item.ageRating?.let { AgeRating.of(it) } == AgeRating.NSFW
+
+                    AwerySettings.AdultContent.HIDE ->
+                        item.ageRating?.let { AgeRating.of(it) } != AgeRating.NSFW
                 }
             }
-
-            module!!.loadFeed(feed, currentPage).also { results ->
-                // Sometimes api may return media items with the same idea due
-                // to new content being added during the pagination.
-                val newMedia = results.items.filter { item ->
-                    media.none { it.id == item.id } && when(AwerySettings.adultContent.value) {
-                        AwerySettings.AdultContent.SHOW -> true
-
-                        AwerySettings.AdultContent.ONLY ->
-                            item.ageRating?.let { AgeRating.of(it) } == AgeRating.NSFW
-
-                        AwerySettings.AdultContent.HIDE ->
-                            item.ageRating?.let { AgeRating.of(it) } != AgeRating.NSFW
-                    }
-                }
-
-                _media += newMedia
-
-                _loadingStatus.value = if(results.hasNextPage) {
-                    LoadingStatus.NotInitialized
-                } else LoadingStatus.Loaded
-
-                currentPage++
-
-                if(newMedia.isEmpty()) {
-                    loadMore()
+        }
+    ) { page ->
+        withContext(Dispatchers.Default) {
+            try {
+                val catalogModule = module.await() ?: throw IllegalStateException("Extension is no longer installed!")
+                catalogModule.loadFeed(feed, page)
+            } catch(t: Throwable) {
+                if(t !is CancellationException) {
+                    Log.e("ExtensionFeedScreen", "Failed to load an feed!", t)
                 }
+                
+                throw t
             }
         }
     }
-}
\ No newline at end of file
+    
+    val loadingStatus get() = paginator.status
+    val media get() = paginator.items
+}
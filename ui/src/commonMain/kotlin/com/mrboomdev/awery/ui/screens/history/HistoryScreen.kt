@@ -18,12 +18,12 @@ import coil3.compose.AsyncImage
 import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.data.database.database
 import com.mrboomdev.awery.data.database.history
-import com.mrboomdev.awery.extension.loaders.getPoster
 import com.mrboomdev.awery.resources.Res
 import com.mrboomdev.awery.resources.ic_delete_outlined
 import com.mrboomdev.awery.ui.navigation.Navigation
 import com.mrboomdev.awery.ui.navigation.RouteInfoEffect
 import com.mrboomdev.awery.ui.navigation.Routes
+import com.mrboomdev.awery.ui.utils.MediaPoster
 import com.mrboomdev.awery.ui.utils.add
 import com.mrboomdev.awery.ui.utils.niceSideInset
 import kotlinx.coroutines.Dispatchers
@@ -85,7 +85,7 @@ fun HistoryScreen(
                             .height(112.dp)
                             .aspectRatio(9f / 16f),
                         
-                        model = historyItem.media.getPoster(),
+                        model = MediaPoster(historyItem.media),
                         contentDescription = null,
                         contentScale = ContentScale.Crop
                     )
@@ -40,6 +40,7 @@ import com.mrboomdev.awery.ui.navigation.RouteInfo
 import com.mrboomdev.awery.ui.navigation.RouteInfoEffect
 import com.mrboomdev.awery.ui.popups.MediaActionsDialog
 import com.mrboomdev.awery.ui.utils.*
+import com.mrboomdev.awery.ui.utils.pagination.PrefetchImages
 import kotlinx.coroutines.launch
 import org.jetbrains.compose.resources.painterResource
 import java.util.*
@@ -61,6 +62,12 @@ fun HomeScreen(
 	val navigation = Navigation.current()
 	
 	val showShimmer = isLoading && !isReloading && viewModel.loadedFeeds.isEmpty()
+	
+	// Only the first cards of each row are visible until the user scrolls it.
+	PrefetchImages(lazyListState, distance = 2, imageSize = 115.dp) { index ->
+		// Feeds go after the "cats" and the "header" items.
+		viewModel.loadedFeeds.getOrNull(index - 2)?.third?.items.orEmpty().take(8).map(::MediaPoster)
+	}
 
 	PostLaunchedEffect(AwerySettings.adultContent.collectAsState().value) {
 		viewModel.reload()
@@ -3,14 +3,13 @@ package com.mrboomdev.awery.ui.screens.home
 import androidx.compose.runtime.mutableStateListOf
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.core.utils.CacheStorage
 import com.mrboomdev.awery.core.utils.NothingFoundException
 import com.mrboomdev.awery.core.utils.collection.iterateMutable
 import com.mrboomdev.awery.core.utils.collection.replace
 import com.mrboomdev.awery.core.utils.launchTrying
 import com.mrboomdev.awery.data.AgeRating
-import com.mrboomdev.awery.data.database.database
+import com.mrboomdev.awery.data.blacklist.Blacklist
 import com.mrboomdev.awery.data.settings.AwerySettings
 import com.mrboomdev.awery.extension.loaders.Extensions
 import com.mrboomdev.awery.extension.loaders.Extensions.get
@@ -213,10 +212,7 @@ class HomeViewModel: ViewModel() {
 
 								AwerySettings.AdultContent.ONLY ->
 									media.ageRating?.let { AgeRating.of(it) } == AgeRating.NSFW
-							} && !Awery.database.mediaBlacklist.isBlacklisted(
-								extensionId = extension.id,
-								mediaId = media.id
-							)
+							} && !Blacklist.isBlacklisted(extension.id, media)
 						}
 						
 						if(useCache) {
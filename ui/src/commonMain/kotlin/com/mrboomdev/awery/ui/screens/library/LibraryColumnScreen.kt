@@ -12,7 +12,7 @@ import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.unit.dp
-import com.mrboomdev.awery.data.database.entity.DBMedia
+import com.mrboomdev.awery.data.database.entity.DBMediaPreview
 import com.mrboomdev.awery.extension.sdk.Media
 import com.mrboomdev.awery.resources.Res
 import com.mrboomdev.awery.resources.empty_library_message
@@ -24,6 +24,7 @@ import com.mrboomdev.awery.ui.components.FeedRow
 import com.mrboomdev.awery.ui.components.InfoBox
 import com.mrboomdev.awery.ui.popups.MediaActionsDialog
 import com.mrboomdev.awery.ui.utils.*
+import kotlinx.coroutines.launch
 import org.jetbrains.compose.resources.painterResource
 import org.jetbrains.compose.resources.stringResource
 
@@ -35,6 +36,7 @@ fun LibraryColumnScreen(
 	val isNoLists by viewModel.isNoLists.collectAsState()
 	val (didLoadLists, lists) = viewModel.lists.collectAsState().value
 	val navigation = Navigation.current()
+	val coroutineScope = rememberCoroutineScope()
 
 	Crossfade(when {
 		isNoLists -> LibraryStatus.EMPTY
@@ -71,8 +73,11 @@ fun LibraryColumnScreen(
 					items(
 						items = lists,
 						key = { it.first.id }
-					) { (list, items) ->
-						var showActionsDialog by remember { mutableStateOf<Pair<DBMedia, Media>?>(null) }
+					) { (list, _) ->
+						// Only the first page of each list is provided by the view model.
+						val pageSource = remember(list.id) { viewModel.getPageSource(list) }
+						val items = pageSource.items
+						var showActionsDialog by remember { mutableStateOf<Pair<DBMediaPreview, Media>?>(null) }
 
 						showActionsDialog?.also { (dbMedia, media) ->
 							MediaActionsDialog(
@@ -119,16 +124,26 @@ fun LibraryColumnScreen(
 //								)
 							},
 
+							onLoadMore = { pageSource.loadMore() },
+
 							onMediaLongClick = { media ->
-								showActionsDialog = items.first { it.second == media}.first to media
+								val dbMedia = items.first { it.second == media }.first
+
+								coroutineScope.launch {
+									showActionsDialog = dbMedia to viewModel.getFullMedia(dbMedia)
+								}
 							},
 
 							onMediaSelected = { media ->
-								navigation.push(Routes.Media(
-									extensionId = items.first { it.second == media }.first.extensionId,
-									extensionName = null,
-									media = media
-								))
+								val dbMedia = items.first { it.second == media }.first
+
+								coroutineScope.launch {
+									navigation.push(Routes.Media(
+										extensionId = dbMedia.extensionId,
+										extensionName = null,
+										media = viewModel.getFullMedia(dbMedia)
+									))
+								}
 							}
 						)
 					}
@@ -0,0 +1,85 @@
+package com.mrboomdev.awery.ui.screens.library
+
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateListOf
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.setValue
+import com.mrboomdev.awery.core.Awery
+import com.mrboomdev.awery.core.utils.LoadingStatus
+import com.mrboomdev.awery.core.utils.Log
+import com.mrboomdev.awery.core.utils.mayStartLoading
+import com.mrboomdev.awery.data.database.database
+import com.mrboomdev.awery.data.database.entity.DBMediaPreview
+import com.mrboomdev.awery.data.database.entity.toPartialMedia
+import com.mrboomdev.awery.extension.sdk.Media
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * Loads media of a single library list page by page, so that only
+ * the visible part of the list has to be kept in the memory.
+ * The first page is provided by the [LibraryViewModel.lists] and all following are loaded on demand.
+ */
+class LibraryPageSource internal constructor(
+	private val listId: Long,
+	private val pageSize: Int,
+	firstPage: List<Pair<DBMediaPreview, Media>>
+) {
+	private val mutex = Mutex()
+	
+	private val _items = mutableStateListOf(*firstPage.toTypedArray())
+	val items: List<Pair<DBMediaPreview, Media>> = _items
+	
+	var loadingStatus by mutableStateOf(if(firstPage.size < pageSize) {
+		LoadingStatus.Loaded
+	} else LoadingStatus.NotInitialized)
+		private set
+
+	/**
+	 * Replaces all loaded items after the list has been changed.
+	 * If more than a single page was loaded, then the same amount of items will be loaded again.
+	 */
+	suspend fun reset(firstPage: List<Pair<DBMediaPreview, Media>>) = mutex.withLock {
+		// The list can contain more items only if the first page is full.
+		val requested = if(firstPage.size == pageSize) maxOf(pageSize, _items.size) else pageSize
+		
+		val items = if(requested > pageSize) {
+			Awery.database.lists.getMediaPage(listId, Long.MAX_VALUE, requested).map {
+				it to it.toPartialMedia()
+			}
+		} else firstPage
+		
+		_items.clear()
+		_items += items
+		
+		loadingStatus = if(items.size < requested) {
+			LoadingStatus.Loaded
+		} else LoadingStatus.NotInitialized
+	}
+	
+	suspend fun loadMore() = mutex.withLock {
+		if(!loadingStatus.mayStartLoading) return@withLock
+		loadingStatus = LoadingStatus.Loading
+		
+		try {
+			val page = Awery.database.lists.getMediaPage(
+				listId = listId,
+				beforeRowId = _items.lastOrNull()?.first?.rowid ?: Long.MAX_VALUE,
+				limit = pageSize
+			)
+			
+			_items += page.map { it to it.toPartialMedia() }
+			
+			loadingStatus = if(page.size < pageSize) {
+				LoadingStatus.Loaded
+			} else LoadingStatus.NotInitialized
+		} catch(e: CancellationException) {
+			loadingStatus = LoadingStatus.NotInitialized
+			throw e
+		} catch(t: Throwable) {
+			Log.e("LibraryPageSource", "Failed to load a page of the list $listId!", t)
+			loadingStatus = LoadingStatus.Failed(t)
+		}
+	}
+}
\ No newline at end of file
@@ -6,6 +6,7 @@ import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.grid.GridCells
 import androidx.compose.foundation.lazy.grid.LazyVerticalGrid
 import androidx.compose.foundation.lazy.grid.items
+import androidx.compose.foundation.lazy.grid.rememberLazyGridState
 import androidx.compose.foundation.pager.HorizontalPager
 import androidx.compose.foundation.pager.rememberPagerState
 import androidx.compose.foundation.shape.RoundedCornerShape
@@ -18,6 +19,7 @@ import androidx.compose.ui.graphics.Color
 import androidx.compose.ui.unit.dp
 import com.mrboomdev.awery.data.settings.AwerySettings
 import com.mrboomdev.awery.data.settings.collectAsState
+import com.mrboomdev.awery.extension.sdk.Media
 import com.mrboomdev.awery.resources.*
 import com.mrboomdev.awery.ui.navigation.Navigation
 import com.mrboomdev.awery.ui.navigation.Routes
@@ -26,6 +28,7 @@ import com.mrboomdev.awery.ui.components.MediaCard
 import com.mrboomdev.awery.ui.popups.MediaActionsDialog
 import com.mrboomdev.awery.ui.screens.settings.pages.SettingsPages
 import com.mrboomdev.awery.ui.utils.*
+import com.mrboomdev.awery.ui.utils.pagination.InfiniteScroll
 import kotlinx.coroutines.launch
 import org.jetbrains.compose.resources.painterResource
 import org.jetbrains.compose.resources.stringResource
@@ -152,8 +155,20 @@ fun LibraryTabbedScreen(
 								}
 								
 								false -> {
+									val pageSource = remember(lists[index].first.id) {
+										viewModel.getPageSource(lists[index].first)
+									}
+									
+									val gridState = rememberLazyGridState()
+									
+									InfiniteScroll(
+										state = gridState,
+										loadMore = { pageSource.loadMore() }
+									)
+									
 									LazyVerticalGrid(
 										modifier = Modifier.fillMaxSize(),
+										state = gridState,
 
 										contentPadding = contentPadding.only(
 											horizontal = true, bottom = true
@@ -166,16 +181,16 @@ fun LibraryTabbedScreen(
 										singleItem("scrollFix")
 
 										items(
-											items = lists[index].second,
+											items = pageSource.items,
 											key = { "${it.first.extensionId}_${it.first.id}" }
 										) { (dbMedia, media) ->
-											var showActionsDialog by remember { mutableStateOf(false) }
+											var showActionsDialog by remember { mutableStateOf<Media?>(null) }
 
-											if(showActionsDialog) {
+											showActionsDialog?.also { fullMedia ->
 												MediaActionsDialog(
 													extensionId = dbMedia.extensionId,
-													media = media,
-													onDismissRequest = { showActionsDialog = false }
+													media = fullMedia,
+													onDismissRequest = { showActionsDialog = null }
 												)
 											}
 
@@ -183,13 +198,19 @@ fun LibraryTabbedScreen(
 												modifier = Modifier.fillMaxWidth(),
 												media = media,
 												onClick = {
-													navigation.push(Routes.Media(
-														extensionId = dbMedia.extensionId,
-														extensionName = null,
-														media = media
-													))
+													coroutineScope.launch {
+														navigation.push(Routes.Media(
+															extensionId = dbMedia.extensionId,
+															extensionName = null,
+															media = viewModel.getFullMedia(dbMedia)
+														))
+													}
 												},
-												onLongClick = { showActionsDialog = true }
+												onLongClick = {
+													coroutineScope.launch {
+														showActionsDialog = viewModel.getFullMedia(dbMedia)
+													}
+												}
 											)
 										}
 									}
@@ -4,8 +4,11 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.data.database.database
+import com.mrboomdev.awery.data.database.entity.DBList
+import com.mrboomdev.awery.data.database.entity.DBMediaPreview
 import com.mrboomdev.awery.data.database.entity.toMedia
-import kotlinx.coroutines.ExperimentalCoroutinesApi
+import com.mrboomdev.awery.data.database.entity.toPartialMedia
+import com.mrboomdev.awery.extension.sdk.Media
 import kotlinx.coroutines.flow.*
 import kotlinx.coroutines.runBlocking
 
@@ -20,21 +23,58 @@ class LibraryViewModel: ViewModel() {
 			}
 		)
 
-	@OptIn(ExperimentalCoroutinesApi::class)
-	val lists = Awery.database.lists.observeAll()
-		.flatMapLatest { lists ->
-			combine(lists.map { list ->
-				Awery.database.lists.observeMediaInList(list.id)
-			}) { lists.zip(it) { list, mediaList ->
-				list to mediaList.map { media ->
-					media to media.toMedia()
-				}
-			} }
+	private val pageSources = mutableMapOf<Long, LibraryPageSource>()
+	
+	/**
+	 * Contains only the first page of media in each list.
+	 * Use [getPageSource] to display all of them.
+	 */
+	val lists = Awery.database.lists.observeAllWithMedia(PAGE_SIZE)
+		.runningFold(emptyList<Pair<DBList, List<Pair<DBMediaPreview, Media>>>>()) { previous, rows ->
+			val previousLists = previous.associateBy { it.first.id }
+			
+			rows.groupBy({ it.list }, { it.media }).map { (list, media) ->
+				val previews = media.filterNotNull()
+				
+				// Reuse lists which weren't changed, so that only changed ones will be recomposed.
+				previousLists[list.id]?.takeIf { (previousList, previousMedia) ->
+					previousList == list && previousMedia.size == previews.size &&
+							previousMedia.indices.all { previousMedia[it].first == previews[it] }
+				} ?: (list to previews.map { it to it.toPartialMedia() })
+			}
+		}
+		.drop(1)
+		.onEach { lists ->
+			// Changes past the first page aren't visible here, so we do reset even if nothing has changed.
+			val ids = lists.mapTo(hashSetOf()) { it.first.id }
+			pageSources.keys.retainAll(ids)
+			
+			for((list, firstPage) in lists) {
+				pageSources[list.id]?.reset(firstPage)
+			}
 		}
+		.distinctUntilChanged()
 		.map { true to it }
 		.stateIn(
 			scope = viewModelScope,
 			started = SharingStarted.WhileSubscribed(5_000),
 			initialValue = false to emptyList()
 		)
-}
\ No newline at end of file
+	
+	fun getPageSource(list: DBList): LibraryPageSource {
+		return pageSources.getOrPut(list.id) {
+			LibraryPageSource(list.id, PAGE_SIZE, lists.value.second.firstOrNull { 
+				it.first.id == list.id
+			}?.second ?: emptyList())
+		}
+	}
+	
+	/**
+	 * Lists only contain previews of media, so the full one has to be loaded before opening it.
+	 */
+	suspend fun getFullMedia(media: DBMediaPreview): Media {
+		return Awery.database.media.get(media.extensionId, media.id)?.toMedia() ?: media.toPartialMedia()
+	}
+}
+
+private const val PAGE_SIZE = 50
\ No newline at end of file
@@ -17,14 +17,9 @@ class MainScreenViewModel(savedStateHandle: SavedStateHandle): ViewModel() {
     val continueWatching = Awery.database.progress
         .observeLatest(25)
         .map { all ->
-            all.map { watchProgress ->
-				val media = Awery.database.media.get(
-                    extensionId = watchProgress.extensionId, 
-                    id = watchProgress.mediaId
-                ) ?: return@map null
-
+            all.map { (watchProgress, media) ->
 				watchProgress to media.toMedia()
-            }.filterNotNull()
+            }
         }.stateIn(
             scope = viewModelScope,
             started = SharingStarted.WhileSubscribed(5_000),
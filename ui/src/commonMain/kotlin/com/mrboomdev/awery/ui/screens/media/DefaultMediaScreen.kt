@@ -41,7 +41,6 @@ import be.digitalia.compose.htmlconverter.htmlToAnnotatedString
 import coil3.compose.AsyncImage
 import coil3.compose.LocalPlatformContext
 import coil3.request.ImageRequest
-import com.kmpalette.loader.rememberNetworkLoader
 import com.kmpalette.rememberDominantColorState
 import com.mrboomdev.awery.core.Awery
 import com.mrboomdev.awery.core.utils.await
@@ -106,18 +105,16 @@ internal fun DefaultMediaScreen(
 	var showGallery by rememberSaveable { mutableStateOf(false) }
 	val pagerState = rememberPagerState { tabs.count() }
 
-	val defaultColor = remember(media) {
-		if(media.getLargePoster() == null) return@remember null
+	val colorsKey = destination.extensionId + destination.media.id
 
-		runBlocking {
-			colorsCache[destination.extensionId + destination.media.id]
-		}
+	var cachedColors by remember(media) {
+		mutableStateOf(if(media.getLargePoster() == null) null else MediaColors.peek(colorsKey))
 	}
 
 	val dominantColorState = rememberDominantColorState(
-		defaultColor = defaultColor?.color ?: MaterialTheme.colorScheme.primary,
-		defaultOnColor = defaultColor?.onColor ?: MaterialTheme.colorScheme.onPrimary,
-		loader = rememberNetworkLoader()
+		defaultColor = MaterialTheme.colorScheme.primary,
+		defaultOnColor = MaterialTheme.colorScheme.onPrimary,
+		loader = rememberCoilImageBitmapLoader()
 	)
 	
 	fun openWatchPage() {
@@ -156,15 +153,25 @@ internal fun DefaultMediaScreen(
 	}
 
 	LaunchedEffect(media) {
+		if(cachedColors != null) return@LaunchedEffect
+		
 		media.getLargePoster()?.also { poster ->
-			dominantColorState.updateFrom(Url(poster))
+			MediaColors.get(colorsKey)?.also { 
+				cachedColors = it
+				return@LaunchedEffect
+			}
 			
-			colorsCache[destination.extensionId + destination.media.id] = 
-				ColorScheme(dominantColorState.color, dominantColorState.onColor)
+			// The poster is most likely already cached by the card which was clicked.
+			dominantColorState.updateFrom(poster)
+			
+			ColorScheme(dominantColorState.color, dominantColorState.onColor).also {
+				cachedColors = it
+				MediaColors.set(colorsKey, it)
+			}
 		}
 	}
 
-	SeedAweryTheme(seedColor = dominantColorState.color) {
+	SeedAweryTheme(seedColor = cachedColors?.color ?: dominantColorState.color) {
 		@Composable
 		fun TopButton(
 			modifier: Modifier = Modifier,
@@ -998,6 +1005,13 @@ internal fun ColumnScope.MediaScreenContent(
 									Row(
 										modifier = Modifier
 											.fillMaxWidth()
+											.thenIf(run {
+												val variant = node as? VariantWatcher ?: return@run false
+												val value = variant.progress?.progress ?: 0
+												(value > 0 || value == -1L) &&
+														(variant.variant.type != WatchVariant.Type.QUALITY &&
+																variant.variant.type != WatchVariant.Type.LOCALE)
+											}) { alpha(.5f) }
 											.heightIn(min = 48.dp)
 											.padding(horizontal = 16.dp, vertical = 8.dp),
 										verticalAlignment = Alignment.CenterVertically,
@@ -27,11 +27,15 @@ import com.mrboomdev.awery.ui.utils.viewModel
 import io.github.vinceglb.filekit.FileKit
 import io.github.vinceglb.filekit.cacheDir
 import io.github.vinceglb.filekit.resolve
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.DelicateCoroutinesApi
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.async
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
 import kotlinx.serialization.Serializable
 import org.jetbrains.compose.resources.stringResource
 
@@ -110,11 +114,41 @@ internal data class ColorScheme(
     @Serializable(with = ColorSerializer::class) val onColor: Color
 )
 
-internal val colorsCache = runBlocking {
-    CacheStorage<ColorScheme>(
-        directory = FileKit.cacheDir.resolve("colorSchemes"),
-        maxSize = 5 * 1024 * 1024
-    )
+/**
+ * Colors of recently opened media are kept in memory, so that they can be read
+ * without suspending while the screen is being composed. All other ones are stored on the disk.
+ */
+internal object MediaColors {
+    private const val MEMORY_SIZE = 64
+    
+    private val memory = object : LinkedHashMap<String, ColorScheme>(16, .75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, ColorScheme>) = size > MEMORY_SIZE
+    }
+
+    @OptIn(DelicateCoroutinesApi::class)
+    private val storage = GlobalScope.async(Dispatchers.IO, CoroutineStart.LAZY) {
+        CacheStorage<ColorScheme>(
+            directory = FileKit.cacheDir.resolve("colorSchemes"),
+            maxSize = 5 * 1024 * 1024
+        )
+    }
+
+    fun peek(key: String) = synchronized(memory) {
+        memory[key]
+    }
+
+    suspend fun get(key: String): ColorScheme? {
+        peek(key)?.also { return it }
+        
+        return storage.await()[key]?.also { colors ->
+            synchronized(memory) { memory[key] = colors }
+        }
+    }
+
+    suspend fun set(key: String, colors: ColorScheme) {
+        synchronized(memory) { memory[key] = colors }
+        storage.await()[key] = colors
+    }
 }
 
 class MediaScreenViewModel(
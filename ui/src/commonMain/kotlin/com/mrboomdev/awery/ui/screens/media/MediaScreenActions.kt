@@ -192,6 +192,14 @@ internal fun ColumnScope.MediaScreenActions(
             showEpisodesDialog = false
         }
 
+        // A single query for all variants, because there may be thousands of episodes.
+        suspend fun getProgresses(): Map<String, DBWatchProgress> {
+            return Awery.database.progress.getAll(
+                destination.extensionId,
+                destination.media.id
+            ).associateBy { it.variantId }
+        }
+
         fun watch(video: Video) {
             viewModel.viewModelScope.launch(Dispatchers.Main) {
                 navigation.push(
@@ -225,15 +233,9 @@ internal fun ColumnScope.MediaScreenActions(
                         return@get
                     }
 
+                    val progresses = getProgresses()
                     watchVariants.clear()
-
-                    watchVariants.addAll(variants.items.map {
-                        it to Awery.database.progress.get(
-                            destination.extensionId,
-                            destination.media.id,
-                            it.id
-                        )
-                    })
+                    watchVariants.addAll(variants.items.map { it to progresses[it.id] })
                 }
             }
         }
@@ -254,14 +256,9 @@ internal fun ColumnScope.MediaScreenActions(
 
                 try {
                     module!!.watch(media, 0).get(::watch) { variants ->
+                        val progresses = getProgresses()
                         watchVariants.clear()
-                        watchVariants.addAll(variants.items.map {
-                            it to Awery.database.progress.get(
-                                destination.extensionId,
-                                destination.media.id,
-                                it.id
-                            )
-                        })
+                        watchVariants.addAll(variants.items.map { it to progresses[it.id] })
                     }
                 } catch(t: Throwable) {
                     cancelJob()
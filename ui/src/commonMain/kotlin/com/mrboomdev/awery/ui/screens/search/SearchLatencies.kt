@@ -0,0 +1,57 @@
+package com.mrboomdev.awery.ui.screens.search
+
+import com.mrboomdev.awery.extension.sdk.Extension
+import java.lang.System.currentTimeMillis
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.time.Duration.Companion.minutes
+
+/**
+ * Remembers how fast each extension answers searches, so that the fast ones are asked first
+ * and the ones which keep timing out are left alone for a while.
+ */
+internal object SearchLatencies {
+	private const val SKIP_AFTER_TIMEOUTS = 3
+	private val SKIP_FOR = 10.minutes
+	
+	private val entries = ConcurrentHashMap<String, Entry>()
+	
+	private class Entry {
+		var averageMillis = 0L
+		var timeoutsInRow = 0
+		var skipUntil = 0L
+	}
+	
+	fun record(extensionId: String, millis: Long) {
+		entries.compute(extensionId) { _, entry ->
+			(entry ?: Entry()).apply { 
+				// Exponential moving average, so that a single hiccup doesn't move the source to the end.
+				averageMillis = if(averageMillis == 0L) millis else (averageMillis * 7 + millis * 3) / 10
+				timeoutsInRow = 0
+				skipUntil = 0
+			}
+		}
+	}
+	
+	fun recordTimeout(extensionId: String, timeoutMillis: Long) {
+		entries.compute(extensionId) { _, entry ->
+			(entry ?: Entry()).apply {
+				averageMillis = maxOf(averageMillis, timeoutMillis)
+				
+				if(++timeoutsInRow >= SKIP_AFTER_TIMEOUTS) {
+					skipUntil = currentTimeMillis() + SKIP_FOR.inWholeMilliseconds
+				}
+			}
+		}
+	}
+	
+	fun shouldSkip(extensionId: String): Boolean {
+		return (entries[extensionId]?.skipUntil ?: return false) > currentTimeMillis()
+	}
+	
+	/**
+	 * Sources which were never measured go first, so that they get their chance.
+	 */
+	fun sortByLatency(extensions: List<Extension>): List<Extension> {
+		return extensions.sortedBy { entries[it.id]?.averageMillis ?: 0 }
+	}
+}
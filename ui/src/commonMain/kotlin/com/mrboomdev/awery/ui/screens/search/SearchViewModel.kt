@@ -8,7 +8,7 @@ import com.mrboomdev.awery.core.utils.collection.iterateMutable
 import com.mrboomdev.awery.core.utils.collection.replace
 import com.mrboomdev.awery.core.utils.launchSupervise
 import com.mrboomdev.awery.core.utils.launchTrying
-import com.mrboomdev.awery.core.utils.launchTryingSupervise
+import com.mrboomdev.awery.data.blacklist.Blacklist
 import com.mrboomdev.awery.data.settings.AwerySettings
 import com.mrboomdev.awery.extension.loaders.Extensions
 import com.mrboomdev.awery.extension.loaders.Extensions.get
@@ -18,10 +18,20 @@ import com.mrboomdev.awery.extension.sdk.modules.CatalogModule
 import com.mrboomdev.awery.ui.App
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.FlowPreview
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.*
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.supervisorScope
+import kotlinx.coroutines.withTimeoutOrNull
+import java.lang.System.currentTimeMillis
+import java.net.SocketTimeoutException
+import kotlin.time.Duration.Companion.seconds
 
+private const val SEARCH_DEBOUNCE_MILLIS = 300L
+private val SEARCH_TIMEOUT = 20.seconds
+
+@OptIn(FlowPreview::class)
 class SearchViewModel: ViewModel() {
 	private val jobs = mutableListOf<Job>()
 	
@@ -72,7 +82,11 @@ class SearchViewModel: ViewModel() {
 						AwerySettings.AdultContent.ONLY -> extension.isNsfw
 					}
 				}
-			}.onEach { (query, extensions) ->
+			}.debounce { (query, _) ->
+				// Don't bother extensions with every single keystroke.
+				if(query.isBlank()) 0 else SEARCH_DEBOUNCE_MILLIS
+			}.collectLatest { (query, extensions) ->
+				// Searches of the previous query are being cancelled together with the previous block.
 				jobs.iterateMutable { 
 					it.cancel()
 					remove()
@@ -84,46 +98,72 @@ class SearchViewModel: ViewModel() {
 
 				if(query.isBlank()) {
 					// We don't want to search for anything because user don't want to see unwanted stuff here.
-					return@onEach
+					return@collectLatest
 				}
 				
-				var doneJobs = 0
-				
-				suspend fun checkIfDoneAllJobs() {
-					if(doneJobs < extensions.size) return
-					_isLoadingFeeds.emit(false)
-				}
-				
-				extensions.forEach { extension ->
-					extension.get<CatalogModule>()?.also { catalogModule ->
-						val filters = catalogModule.getDefaultFilters()
-
-						filters.find {
-							it.role == Preference.Role.QUERY
-						}?.let { it as? StringPreference }?.apply {
-							value = query.trim()
-						}
+				supervisorScope {
+					for(extension in SearchLatencies.sortByLatency(extensions)) {
+						val catalogModule = extension.get<CatalogModule>() ?: continue
+						val isSkipped = SearchLatencies.shouldSkip(extension.id)
 						
-						jobs += launchTryingSupervise(Dispatchers.Default, onCatch = {
-							jobs += launch { 
-								_failedFeeds += Triple(extension, it, filters)
-								doneJobs++
-								checkIfDoneAllJobs()
-							}
-						}) {
-							_loadedFeeds += Triple(extension, catalogModule.search(filters).also { 
-								if(it.items.isEmpty()) {
-									throw NothingFoundException()
-								}
-							}, filters)
+						// Some extensions do load filters from the network,
+						// so a slow one mustn't hold back searches of all others.
+						launch {
+							var filters = emptyList<Preference<*>>()
 							
-							doneJobs++
-							checkIfDoneAllJobs()
+							try {
+								filters = catalogModule.getDefaultFilters()
+
+								filters.find {
+									it.role == Preference.Role.QUERY
+								}?.let { it as? StringPreference }?.apply {
+									value = query.trim()
+								}
+								
+								if(isSkipped) {
+									throw SocketTimeoutException(
+										"Skipped because the last searches timed out. Retry to search anyway.")
+								}
+								
+								_loadedFeeds += Triple(extension, search(extension, catalogModule, filters).also {
+									if(it.items.isEmpty()) {
+										throw NothingFoundException()
+									}
+								}, filters)
+							} catch(e: CancellationException) {
+								throw e
+							} catch(t: Throwable) {
+								_failedFeeds += Triple(extension, t, filters)
+							}
 						}
 					}
 				}
-			}.conflate().collect()
+				
+				_isLoadingFeeds.emit(false)
+			}
+		}
+	}
+	
+	/**
+	 * Searches with a timeout and records how long did it take.
+	 * @throws SocketTimeoutException If the extension didn't respond in time.
+	 */
+	private suspend fun search(
+		extension: Extension,
+		catalogModule: CatalogModule,
+		filters: List<Preference<*>>
+	): Results<Media> {
+		val startedAt = currentTimeMillis()
+		
+		val results = withTimeoutOrNull(SEARCH_TIMEOUT) {
+			catalogModule.search(filters)
+		} ?: run {
+			SearchLatencies.recordTimeout(extension.id, SEARCH_TIMEOUT.inWholeMilliseconds)
+			throw SocketTimeoutException("${extension.name} didn't respond in $SEARCH_TIMEOUT")
 		}
+		
+		SearchLatencies.record(extension.id, currentTimeMillis() - startedAt)
+		return results.copy(items = Blacklist.filter(extension.id, results.items))
 	}
 
 	fun reloadFeed(
@@ -138,7 +178,7 @@ class SearchViewModel: ViewModel() {
 			_failedFeeds.replace(key, Triple(extension, it, filters))
 			onResult(null)
 		}) {
-			val results = extension.get<CatalogModule>()!!.search(filters).apply {
+			val results = search(extension, extension.get<CatalogModule>()!!, filters).apply {
 				if(items.isEmpty()) throw NothingFoundException("Feed loaded with 0 results.")
 			}
 
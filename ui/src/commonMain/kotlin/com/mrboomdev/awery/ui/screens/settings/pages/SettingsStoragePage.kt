@@ -16,16 +16,29 @@ import androidx.compose.ui.Modifier
 import androidx.compose.ui.window.Dialog
 import com.mrboomdev.awery.core.utils.deleteRecursively
 import com.mrboomdev.awery.core.utils.sizeRecursively
+import com.mrboomdev.awery.data.settings.AwerySettings
 import com.mrboomdev.awery.resources.Res
 import com.mrboomdev.awery.resources.ic_delete_outlined
+import com.mrboomdev.awery.resources.ic_language
+import com.mrboomdev.awery.resources.ic_sd_card_outlined
+import com.mrboomdev.awery.resources.network_cache_per_site
+import com.mrboomdev.awery.resources.network_cache_per_site_description
+import com.mrboomdev.awery.resources.network_cache_size
+import com.mrboomdev.awery.resources.network_cache_size_description
+import com.mrboomdev.awery.resources.network_cache_statistics
+import com.mrboomdev.awery.resources.network_cache_statistics_description
 import com.mrboomdev.awery.resources.storage
 import com.mrboomdev.awery.ui.screens.settings.SettingsDefaults
 import com.mrboomdev.awery.ui.screens.settings.itemClickable
 import com.mrboomdev.awery.ui.screens.settings.itemDialog
+import com.mrboomdev.awery.ui.screens.settings.itemSetting
+import eu.kanade.tachiyomi.network.NetworkCache
 import io.github.vinceglb.filekit.FileKit
 import io.github.vinceglb.filekit.cacheDir
 import io.github.vinceglb.filekit.delete
 import io.github.vinceglb.filekit.size
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
 import nl.jacobras.humanreadable.HumanReadable
 import org.jetbrains.compose.resources.painterResource
 import org.jetbrains.compose.resources.stringResource
@@ -73,6 +86,55 @@ fun SettingsStoragePage(
 					}
 				)
 			}
+			
+			item("networkCacheSize") {
+				SettingsDefaults.itemSetting(
+					setting = AwerySettings.networkCacheSize,
+					range = 50..1000,
+					step = 18,
+					icon = painterResource(Res.drawable.ic_sd_card_outlined),
+					title = stringResource(Res.string.network_cache_size),
+					description = stringResource(Res.string.network_cache_size_description)
+				)
+			}
+			
+			item("networkCacheHostQuota") {
+				SettingsDefaults.itemSetting(
+					setting = AwerySettings.networkCacheHostQuota,
+					range = 10..250,
+					step = 23,
+					icon = painterResource(Res.drawable.ic_language),
+					title = stringResource(Res.string.network_cache_per_site),
+					description = stringResource(Res.string.network_cache_per_site_description)
+				)
+			}
+			
+			item("networkCacheStats") {
+				var stats by remember { mutableStateOf<NetworkCache.Stats?>(null) }
+				
+				LaunchedEffect(Unit) {
+					stats = withContext(Dispatchers.IO) { NetworkCache.getStats() }
+				}
+				
+				SettingsDefaults.itemClickable(
+					title = stringResource(Res.string.network_cache_statistics),
+					description = stats?.let {
+						stringResource(
+							Res.string.network_cache_statistics_description,
+							it.hits,
+							it.staleHits,
+							it.revalidations,
+							it.misses,
+							HumanReadable.fileSize(it.size, 2),
+							HumanReadable.fileSize(it.maxSize, 2)
+						)
+					} ?: "Loading...",
+					onClick = {
+						NetworkCache.resetStats()
+						stats = stats?.copy(hits = 0, staleHits = 0, revalidations = 0, misses = 0)
+					}
+				)
+			}
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.mrboomdev.awery.ui.utils
+
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.remember
+import androidx.compose.ui.graphics.ImageBitmap
+import coil3.Image
+import coil3.PlatformContext
+import coil3.SingletonImageLoader
+import coil3.compose.LocalPlatformContext
+import coil3.map.Mapper
+import coil3.request.CachePolicy
+import coil3.request.ErrorResult
+import coil3.request.ImageRequest
+import coil3.request.Options
+import coil3.request.SuccessResult
+import coil3.size.Precision
+import coil3.size.pxOrElse
+import com.kmpalette.loader.ImageBitmapLoader
+import com.mrboomdev.awery.extension.loaders.getPoster
+import com.mrboomdev.awery.extension.sdk.Media
+
+/**
+ * Lets Coil pick the smallest poster of the [media] which is enough for the size it'll be displayed at.
+ * Requires the [MediaPosterMapper] to be registered in the image loader.
+ */
+data class MediaPoster(val media: Media)
+
+class MediaPosterMapper: Mapper<MediaPoster, String> {
+	override fun map(data: MediaPoster, options: Options): String? {
+		return data.media.getPoster(options.size.width.pxOrElse { Int.MAX_VALUE })
+	}
+}
+
+/**
+ * Loads images through the shared Coil loader, so that bitmaps which are already displayed
+ * somewhere are reused from the memory cache and all other ones are read from the disk cache.
+ * Decoded bitmaps aren't written back into the memory cache.
+ *
+ * Images are decoded at no more than [size] pixels, because that's enough to get a palette.
+ */
+internal class CoilImageBitmapLoader(
+	private val context: PlatformContext,
+	private val size: Int = PALETTE_IMAGE_SIZE
+): ImageBitmapLoader<String> {
+	override suspend fun load(input: String): ImageBitmap {
+		val request = ImageRequest.Builder(context)
+			.data(input)
+			.memoryCacheKey(input)
+			// Small bitmaps mustn't replace full-sized ones displayed under the same key.
+			.memoryCachePolicy(CachePolicy.READ_ONLY)
+			.size(size)
+			// A bigger bitmap from the memory cache is still better than decoding the image again.
+			.precision(Precision.INEXACT)
+			.allowSoftwareBitmap()
+			.build()
+
+		return when(val result = SingletonImageLoader.get(context).execute(request)) {
+			is SuccessResult -> result.image.toImageBitmap()
+			is ErrorResult -> throw result.throwable
+		}
+	}
+}
+
+@Composable
+internal fun rememberCoilImageBitmapLoader(): CoilImageBitmapLoader {
+	val context = LocalPlatformContext.current
+	return remember(context) { CoilImageBitmapLoader(context) }
+}
+
+/**
+ * Pixels of software bitmaps can be read by the CPU, unlike hardware ones.
+ */
+internal expect fun ImageRequest.Builder.allowSoftwareBitmap(): ImageRequest.Builder
+
+internal expect fun Image.toImageBitmap(): ImageBitmap
+
+private const val PALETTE_IMAGE_SIZE = 128
@@ -0,0 +1,210 @@
+package com.mrboomdev.awery.ui.utils.pagination
+
+import androidx.compose.foundation.gestures.Orientation
+import androidx.compose.foundation.lazy.LazyListState
+import androidx.compose.foundation.lazy.grid.LazyGridState
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.rememberUpdatedState
+import androidx.compose.runtime.snapshotFlow
+import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.unit.Dp
+import coil3.ImageLoader
+import coil3.PlatformContext
+import coil3.SingletonImageLoader
+import coil3.compose.LocalPlatformContext
+import coil3.request.Disposable
+import coil3.request.ImageRequest
+import coil3.size.Dimension
+import coil3.size.Size
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlin.math.abs
+import kotlin.math.roundToInt
+
+/**
+ * Starts loading images of items which are about to be scrolled into the view,
+ * so that the user doesn't see placeholders while flinging.
+ *
+ * @param distance How many items to prefetch while scrolling slowly.
+ * Up to [MAX_DISTANCE_MULTIPLIER] times more are prefetched while flinging.
+ * @param imageSize Width at which images are going to be displayed.
+ * Width of visible items is used if not specified.
+ * @param images Image models of an item at the given index.
+ */
+@Composable
+fun PrefetchImages(
+	state: LazyListState,
+	distance: Int = DEFAULT_PREFETCH_DISTANCE,
+	imageSize: Dp? = null,
+	images: (index: Int) -> List<Any>
+) {
+	PrefetchImages(
+		key = state,
+		distance = distance,
+		imageSize = imageSize,
+		images = images,
+		viewport = {
+			val layoutInfo = state.layoutInfo
+
+			Viewport(
+				first = layoutInfo.visibleItemsInfo.firstOrNull()?.index ?: 0,
+				last = layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: -1,
+				total = layoutInfo.totalItemsCount,
+				itemWidth = if(layoutInfo.orientation == Orientation.Horizontal) {
+					layoutInfo.visibleItemsInfo.maxOfOrNull { it.size } ?: 0
+				} else layoutInfo.viewportSize.width
+			)
+		}
+	)
+}
+
+/**
+ * @see PrefetchImages
+ */
+@Composable
+fun PrefetchImages(
+	state: LazyGridState,
+	distance: Int = DEFAULT_PREFETCH_DISTANCE,
+	imageSize: Dp? = null,
+	images: (index: Int) -> List<Any>
+) {
+	PrefetchImages(
+		key = state,
+		distance = distance,
+		imageSize = imageSize,
+		images = images,
+		viewport = {
+			val layoutInfo = state.layoutInfo
+
+			Viewport(
+				first = layoutInfo.visibleItemsInfo.firstOrNull()?.index ?: 0,
+				last = layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: -1,
+				total = layoutInfo.totalItemsCount,
+				itemWidth = layoutInfo.visibleItemsInfo.maxOfOrNull { it.size.width } ?: 0
+			)
+		}
+	)
+}
+
+@Composable
+private fun PrefetchImages(
+	key: Any,
+	distance: Int,
+	imageSize: Dp?,
+	images: (index: Int) -> List<Any>,
+	viewport: () -> Viewport
+) {
+	val context = LocalPlatformContext.current
+	val imageSizePx = imageSize?.let { with(LocalDensity.current) { it.roundToPx() } }
+	val currentImages by rememberUpdatedState(images)
+
+	LaunchedEffect(key, distance, imageSizePx) {
+		val prefetcher = ImagePrefetcher(context, SingletonImageLoader.get(context))
+		var previous: Viewport? = null
+		var previousTime = 0L
+		var isForward = true
+
+		try {
+			snapshotFlow { viewport() }
+				.distinctUntilChanged()
+				.collect { current ->
+					if(current.last < 0) return@collect
+					val now = System.nanoTime()
+
+					// Items per second, so that longer flings would prefetch more.
+					val velocity = previous?.let {
+						val elapsed = (now - previousTime).coerceAtLeast(1) / 1_000_000_000f
+						(current.first - it.first) / elapsed
+					} ?: 0f
+
+					if(velocity != 0f) {
+						isForward = velocity > 0
+					}
+
+					previous = current
+					previousTime = now
+
+					val ahead = (distance * (1 + abs(velocity) / FAST_SCROLL_VELOCITY))
+						.coerceAtMost(distance * MAX_DISTANCE_MULTIPLIER.toFloat())
+						.roundToInt()
+
+					val range = if(isForward) {
+						current.last + 1..current.last + ahead
+					} else {
+						current.first - ahead..<current.first
+					}
+
+					prefetcher.update(
+						range = range.first.coerceAtLeast(0)..range.last.coerceAtMost(current.total - 1),
+						// Items which have just been scrolled into the view need their images the most.
+						keep = current.first - ahead..current.last + ahead,
+						width = imageSizePx ?: current.itemWidth,
+						images = currentImages
+					)
+				}
+		} finally {
+			prefetcher.cancelAll()
+		}
+	}
+}
+
+private data class Viewport(
+	val first: Int,
+	val last: Int,
+	val total: Int,
+	val itemWidth: Int
+)
+
+/**
+ * Cancels requests of items which are further away than the prefetch distance,
+ * because it's likely that the user has scrolled away from them.
+ */
+private class ImagePrefetcher(
+	private val context: PlatformContext,
+	private val imageLoader: ImageLoader
+) {
+	private val requests = mutableMapOf<Int, List<Disposable>>()
+
+	/**
+	 * @param range Items to be prefetched.
+	 * @param keep Items whose requests mustn't be cancelled, including visible ones.
+	 */
+	fun update(range: IntRange, keep: IntRange, width: Int, images: (Int) -> List<Any>) {
+		requests.keys.filter { it !in keep }.forEach { index ->
+			requests.remove(index)?.forEach { it.dispose() }
+		}
+
+		for(index in range) {
+			if(index in requests) continue
+
+			requests[index] = images(index).map { model ->
+				imageLoader.enqueue(ImageRequest.Builder(context)
+					.data(model)
+					.size(if(width > 0) Size(width, Dimension.Undefined) else Size.ORIGINAL)
+					// Coil has no priorities, so prefetched images are just loaded a few at a time
+					// and don't occupy threads needed by images which are already on the screen.
+					.fetcherCoroutineContext(prefetchDispatcher)
+					.decoderCoroutineContext(prefetchDispatcher)
+					.build())
+			}
+		}
+	}
+
+	fun cancelAll() {
+		requests.values.forEach { disposables -> disposables.forEach { it.dispose() } }
+		requests.clear()
+	}
+}
+
+private val prefetchDispatcher = Dispatchers.IO.limitedParallelism(2)
+
+const val DEFAULT_PREFETCH_DISTANCE = 6
+private const val MAX_DISTANCE_MULTIPLIER = 3
+
+/**
+ * Items per second after which scrolling is considered to be a fling.
+ */
+private const val FAST_SCROLL_VELOCITY = 20f
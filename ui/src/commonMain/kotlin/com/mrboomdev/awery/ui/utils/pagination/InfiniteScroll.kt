@@ -4,18 +4,26 @@ import androidx.compose.foundation.lazy.LazyListState
 import androidx.compose.foundation.lazy.grid.LazyGridState
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.State
 import androidx.compose.runtime.derivedStateOf
 import androidx.compose.runtime.getValue
 import androidx.compose.runtime.remember
 import androidx.compose.runtime.snapshotFlow
+import com.mrboomdev.awery.core.utils.LoadingStatus
+import com.mrboomdev.awery.core.utils.mayStartLoading
 
 @Composable
 fun InfiniteScroll(
 	state: LazyListState,
 	buffer: Int = 1,
+	prefetchImages: ((index: Int) -> List<Any>)? = null,
 	loadMore: suspend () -> Unit
 ) {
-	val shouldLoadMore = remember {
+	if(prefetchImages != null) {
+		PrefetchImages(state, images = prefetchImages)
+	}
+
+	val shouldLoadMore = remember(state, buffer) {
 		derivedStateOf {
 			val layoutInfo = state.layoutInfo
 			val itemsCount = layoutInfo.totalItemsCount
@@ -24,6 +32,89 @@ fun InfiniteScroll(
 		}
 	}
 
+	LoadMoreEffect(shouldLoadMore, loadMore)
+}
+
+@Composable
+fun InfiniteScroll(
+	state: LazyGridState,
+	buffer: Int = 2,
+	prefetchImages: ((index: Int) -> List<Any>)? = null,
+	loadMore: suspend () -> Unit
+) {
+	if(prefetchImages != null) {
+		PrefetchImages(state, images = prefetchImages)
+	}
+
+	// Layout changes on every scrolled pixel, so only react once the end is reached.
+	val shouldLoadMore = remember(state, buffer) {
+		derivedStateOf {
+			val layoutInfo = state.layoutInfo
+			val lastVisibleItem = layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: 0
+			val totalItems = layoutInfo.totalItemsCount
+			totalItems > 0 && lastVisibleItem >= totalItems - buffer
+		}
+	}
+
+	LoadMoreEffect(shouldLoadMore, loadMore)
+}
+
+/**
+ * Loads the next page of the [paginator] once there are less than [prefetchDistance] items
+ * left below the visible ones, so that the user wouldn't have to wait for it.
+ */
+@Composable
+fun InfiniteScroll(
+	state: LazyGridState,
+	paginator: Paginator<*>,
+	prefetchDistance: Int = DEFAULT_PAGE_PREFETCH_DISTANCE,
+	prefetchImages: ((index: Int) -> List<Any>)? = null
+) {
+	if(prefetchImages != null) {
+		PrefetchImages(state, images = prefetchImages)
+	}
+
+	val remainingItems = remember(state) {
+		derivedStateOf {
+			val layoutInfo = state.layoutInfo
+			val lastVisibleItem = layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: 0
+			layoutInfo.totalItemsCount - lastVisibleItem - 1
+		}
+	}
+
+	PaginatorEffect(paginator, prefetchDistance, remainingItems)
+}
+
+/**
+ * @see InfiniteScroll
+ */
+@Composable
+fun InfiniteScroll(
+	state: LazyListState,
+	paginator: Paginator<*>,
+	prefetchDistance: Int = DEFAULT_PAGE_PREFETCH_DISTANCE,
+	prefetchImages: ((index: Int) -> List<Any>)? = null
+) {
+	if(prefetchImages != null) {
+		PrefetchImages(state, images = prefetchImages)
+	}
+
+	val remainingItems = remember(state) {
+		derivedStateOf {
+			val layoutInfo = state.layoutInfo
+			val lastVisibleItem = layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: 0
+			layoutInfo.totalItemsCount - lastVisibleItem - 1
+		}
+	}
+
+	PaginatorEffect(paginator, prefetchDistance, remainingItems)
+}
+
+@Composable
+private fun LoadMoreEffect(
+	shouldLoadMore: State<Boolean>,
+	loadMore: suspend () -> Unit
+) {
 	LaunchedEffect(shouldLoadMore) {
 		snapshotFlow { shouldLoadMore.value }
 			.collect { shouldLoad ->
@@ -35,20 +126,30 @@ fun InfiniteScroll(
 }
 
 @Composable
-fun InfiniteScroll(
-	state: LazyGridState,
-	buffer: Int = 2,
-	loadMore: suspend () -> Unit
+private fun PaginatorEffect(
+	paginator: Paginator<*>,
+	prefetchDistance: Int,
+	remainingItems: State<Int>
 ) {
-	LaunchedEffect(state) {
-		snapshotFlow { state.layoutInfo }
-			.collect { layoutInfo ->
-				val lastVisibleItem = layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: 0
-				val totalItems = layoutInfo.totalItemsCount
+	LaunchedEffect(paginator, prefetchDistance) {
+		snapshotFlow {
+			val status = paginator.status
 
-				if(totalItems > 0 && lastVisibleItem >= totalItems - buffer) {
-					loadMore()
-				}
+			when {
+				!status.mayStartLoading || remainingItems.value > prefetchDistance -> null
+
+				// Scrolling after a failure retries, but the paginator itself
+				// makes sure that it doesn't happen too often.
+				status is LoadingStatus.Failed -> status to remainingItems.value
+
+				else -> status to paginator.nextPage
+			}
+		}.collect { trigger ->
+			if(trigger != null) {
+				paginator.loadMore()
 			}
+		}
 	}
-}
\ No newline at end of file
+}
+
+const val DEFAULT_PAGE_PREFETCH_DISTANCE = 10
@@ -0,0 +1,166 @@
+package com.mrboomdev.awery.ui.utils.pagination
+
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateListOf
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.setValue
+import com.mrboomdev.awery.core.utils.LoadingStatus
+import com.mrboomdev.awery.extension.sdk.Results
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import java.lang.System.currentTimeMillis
+import kotlin.math.pow
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.Duration.Companion.seconds
+
+/**
+ * Loads pages one after another, with no more than one page being loaded at a time.
+ *
+ * Failed pages may be retried, but not earlier than after a delay growing with each failure.
+ * If a [cacheKey] is specified, then loaded pages are remembered for a while, so that
+ * opening the same feed again restores it at once instead of loading everything from scratch.
+ *
+ * @param key Items having the same key are only added once, because sources may shift pages
+ * if new content was added during the pagination.
+ * @param filter Removes items which shouldn't be shown. Original pages are cached, so that changes
+ * of the filter would be applied to them next time.
+ */
+class Paginator<T>(
+	private val scope: CoroutineScope,
+	private val cacheKey: Any? = null,
+	private val key: (T) -> Any = { it as Any },
+	private val filter: suspend (List<T>) -> List<T> = { it },
+	private val loadPage: suspend (page: Int) -> Results<T>
+) {
+	private val keys = mutableSetOf<Any>()
+	private var job: Job? = null
+	private var failures = 0
+	private var retryAt = 0L
+
+	private val _items = mutableStateListOf<T>()
+	val items: List<T> = _items
+
+	var status by mutableStateOf<LoadingStatus>(LoadingStatus.NotInitialized)
+		private set
+
+	/**
+	 * Index of the page which will be loaded next.
+	 */
+	var nextPage = 0
+		private set
+
+	init {
+		if(cacheKey != null) {
+			// Filters don't suspend if they've got everything they need already,
+			// so cached pages are restored before the first frame is drawn.
+			job = scope.launch(start = CoroutineStart.UNDISPATCHED) {
+				while(status != LoadingStatus.Loaded) {
+					@Suppress("UNCHECKED_CAST")
+					val page = PageCache[cacheKey, nextPage] as Results<T>? ?: break
+					onPageLoaded(page)
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts loading the next page, unless it's already being loaded or there are no more pages.
+	 * @return A job of the running request.
+	 */
+	fun loadMore(): Job? {
+		if(job?.isActive == true || status == LoadingStatus.Loaded) return job
+
+		return scope.launch {
+			(retryAt - currentTimeMillis()).takeIf { it > 0 }?.also { delay(it) }
+			status = LoadingStatus.Loading
+
+			try {
+				do {
+					val page = nextPage
+					val results = loadPage(page)
+
+					if(cacheKey != null) {
+						PageCache[cacheKey, page] = results
+					}
+
+				// Keep going if everything was filtered out, because otherwise the list wouldn't grow
+				// and nothing would trigger the next load.
+				} while(!onPageLoaded(results) && status != LoadingStatus.Loaded)
+
+				failures = 0
+				retryAt = 0
+			} catch(e: CancellationException) {
+				status = LoadingStatus.NotInitialized
+				throw e
+			} catch(t: Throwable) {
+				failures++
+				retryAt = currentTimeMillis() + backoff(failures)
+				status = LoadingStatus.Failed(t)
+			}
+		}.also { job = it }
+	}
+
+	/**
+	 * @return Whether any new item was added.
+	 */
+	private suspend fun onPageLoaded(results: Results<T>): Boolean {
+		val newItems = filter(results.items).filter { keys.add(key(it)) }
+		_items += newItems
+		nextPage++
+
+		status = if(results.hasNextPage) {
+			LoadingStatus.NotInitialized
+		} else LoadingStatus.Loaded
+
+		return newItems.isNotEmpty()
+	}
+
+	private fun backoff(failures: Int): Long {
+		return (MIN_BACKOFF.inWholeMilliseconds * 2.0.pow(failures - 1))
+			.toLong().coerceAtMost(MAX_BACKOFF.inWholeMilliseconds)
+	}
+
+	private companion object {
+		val MIN_BACKOFF = 1.seconds
+		val MAX_BACKOFF = 30.seconds
+	}
+}
+
+/**
+ * Pages loaded by all [Paginator]s, so that they would outlive screens.
+ * Pages are forgotten after [MAX_AGE], because feeds do change over time.
+ */
+private object PageCache {
+	private const val MAX_PAGES = 100
+	private val MAX_AGE = 10.minutes
+
+	private class Entry(
+		val results: Results<*>,
+		val time: Long
+	)
+
+	private val entries = object : LinkedHashMap<Pair<Any, Int>, Entry>(16, .75f, true) {
+		override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Pair<Any, Int>, Entry>) = size > MAX_PAGES
+	}
+
+	operator fun get(key: Any, page: Int) = synchronized(entries) {
+		val entry = entries[key to page] ?: return@synchronized null
+
+		if(currentTimeMillis() - entry.time > MAX_AGE.inWholeMilliseconds) {
+			entries.remove(key to page)
+			return@synchronized null
+		}
+
+		entry.results
+	}
+
+	operator fun set(key: Any, page: Int, results: Results<*>) {
+		synchronized(entries) {
+			entries[key to page] = Entry(results, currentTimeMillis())
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package com.mrboomdev.awery.ui.utils
+
+import androidx.compose.ui.graphics.ImageBitmap
+import androidx.compose.ui.graphics.asComposeImageBitmap
+import coil3.Image
+import coil3.request.ImageRequest
+import coil3.toBitmap
+
+// All bitmaps are already software ones in here.
+internal actual fun ImageRequest.Builder.allowSoftwareBitmap() = this
+
+internal actual fun Image.toImageBitmap(): ImageBitmap {
+	return toBitmap().asComposeImageBitmap()
+}